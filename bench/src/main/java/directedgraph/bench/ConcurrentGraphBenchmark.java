@@ -0,0 +1,108 @@
+package directedgraph.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import directedgraph.ConcurrentGraph;
+import directedgraph.PackageGenerator;
+
+/**
+ * Filename:   ConcurrentGraphBenchmark.java
+ * Project:    p4
+ * Authors:    Sam Peaslee
+ *
+ * JMH scaling benchmark for building a ConcurrentGraph from many threads.
+ *
+ * The edges of a generated graph are split into one slice per thread and
+ * every invocation builds a new graph with all threads adding their slice
+ * at once. Compare the scores across threads to see how ingestion scales,
+ * GraphBenchmark.addEdge is the single threaded Graph baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class ConcurrentGraphBenchmark {
+
+    // Seed of the generated graphs
+    static final long SEED = 42;
+
+    @Param({"1", "2", "4", "8", "16", "32"})
+    int threads;
+
+    @Param({"100000", "1000000"})
+    int size;
+
+    @Param({"random", "powerlaw"})
+    String shape;
+
+    // Source and destination of every edge
+    String[] from;
+    String[] to;
+    ExecutorService pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[][] depends = PackageGenerator.generate(shape, size, SEED);
+        List<String> src = new ArrayList<>();
+        List<String> dst = new ArrayList<>();
+        for (int i = 0; i < depends.length; i++) {
+            String name = PackageGenerator.name(i);
+            for (String depend : depends[i]) {
+                src.add(depend);
+                dst.add(name);
+            }
+        }
+        from = src.toArray(new String[0]);
+        to = dst.toArray(new String[0]);
+        pool = Executors.newFixedThreadPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Builds a ConcurrentGraph of every edge with all threads at once
+     */
+    @Benchmark
+    public ConcurrentGraph addEdge() throws Exception {
+        ConcurrentGraph graph =
+            new ConcurrentGraph(size, 4 * Math.max(threads, 16));
+        List<Future<?>> done = new ArrayList<>();
+        int slice = (from.length + threads - 1) / threads;
+        for (int t = 0; t < threads; t++) {
+            final int start = t * slice;
+            final int end = Math.min(from.length, start + slice);
+            done.add(pool.submit(() -> {
+                for (int i = start; i < end; i++) {
+                    graph.addEdge(from[i], to[i]);
+                }
+            }));
+        }
+        for (Future<?> f : done) {
+            f.get();
+        }
+        return graph;
+    }
+}
@@ -0,0 +1,99 @@
+package directedgraph.bench;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import directedgraph.CompactGraph;
+import directedgraph.DependencyCounts;
+import directedgraph.FrozenGraph;
+import directedgraph.Graph;
+import directedgraph.PackageGenerator;
+
+/**
+ * Filename:   DependencyCountsBenchmark.java
+ * Project:    p4
+ * Authors:    Sam Peaslee
+ *
+ * JMH benchmarks for counting the transitive dependencies of every
+ * package, on one thread and layer by layer on a ForkJoinPool of threads
+ * threads. The speedup is the time of serial over the time of parallel
+ * for each number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class DependencyCountsBenchmark {
+
+    // Seed of the generated graphs
+    static final long SEED = 42;
+
+    @Param({"200000"})
+    int size;
+
+    @Param({"random", "powerlaw", "diamond"})
+    String shape;
+
+    @Param({"1", "2", "4", "8", "16"})
+    int threads;
+
+    // Frozen graph of all packages, edges from a dependency to the
+    // package that depends on it
+    FrozenGraph frozen;
+    // The same graph as a CompactGraph, for serial
+    CompactGraph compact;
+    ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[][] depends = PackageGenerator.generate(shape, size, SEED);
+        Graph graph = new Graph();
+        compact = new CompactGraph(size, size * 4);
+        for (int i = 0; i < depends.length; i++) {
+            String name = PackageGenerator.name(i);
+            graph.addVertex(name);
+            compact.addVertex(name);
+            for (String depend : depends[i]) {
+                graph.addEdge(depend, name);
+                compact.addEdge(depend, name);
+            }
+        }
+        frozen = graph.freeze();
+        compact.compact();
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Counts on one thread, pushing each set into the packages depending
+     * on it. Does not depend on threads.
+     */
+    @Benchmark
+    public int serial() {
+        return new DependencyCounts(compact).max();
+    }
+
+    @Benchmark
+    public int parallel() {
+        return new DependencyCounts(frozen, pool).max();
+    }
+}
@@ -0,0 +1,126 @@
+package directedgraph.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import directedgraph.CompactGraph;
+import directedgraph.Graph;
+import directedgraph.PackageGenerator;
+
+/**
+ * Filename:   GraphBenchmark.java
+ * Project:    p4
+ * Authors:    Sam Peaslee
+ *
+ * JMH benchmarks for building and changing a Graph and a CompactGraph.
+ *
+ * size is the number of packages, shape is one of the PackageGenerator
+ * shapes. Edges go from a dependency to the package that depends on it,
+ * the same way PackageManager builds its graph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class GraphBenchmark {
+
+    // Seed of the generated graphs
+    static final long SEED = 42;
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    @Param({"chain", "fan", "random", "powerlaw", "diamond"})
+    String shape;
+
+    // Dependencies of each package
+    String[][] depends;
+    // Graph built in setup, used by the benchmarks that change a graph
+    Graph graph;
+    // Package removed and restored by removeVertex
+    String removed;
+    // Edges of the removed package, dependencies first and then dependents
+    List<String> removedDepends;
+    List<String> removedDependents;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        depends = PackageGenerator.generate(shape, size, SEED);
+        graph = build();
+        removed = PackageGenerator.name(size / 2);
+        removedDepends = new ArrayList<>(graph.getPredecessorsOf(removed));
+        removedDependents = new ArrayList<>(graph.getAdjacentVerticesOf(removed));
+    }
+
+    /**
+     * Builds a Graph of all packages with addVertex and addEdge
+     */
+    @Benchmark
+    public Graph addEdge() {
+        return build();
+    }
+
+    /**
+     * Builds a CompactGraph of all packages and compacts it
+     */
+    @Benchmark
+    public CompactGraph addEdgeCompact() {
+        CompactGraph compact = new CompactGraph(size, size * 4);
+        for (int i = 0; i < depends.length; i++) {
+            String name = PackageGenerator.name(i);
+            compact.addVertex(name);
+            for (String depend : depends[i]) {
+                compact.addEdge(depend, name);
+            }
+        }
+        compact.compact();
+        return compact;
+    }
+
+    /**
+     * Removes a package from the middle of the graph, then adds it and its
+     * edges back so every invocation sees the same graph
+     */
+    @Benchmark
+    public int removeVertex() {
+        graph.removeVertex(removed);
+        int edges = graph.size();
+        for (String depend : removedDepends) {
+            graph.addEdge(depend, removed);
+        }
+        for (String dependent : removedDependents) {
+            graph.addEdge(removed, dependent);
+        }
+        return edges;
+    }
+
+    /**
+     * Builds a Graph of all packages
+     */
+    private Graph build() {
+        Graph g = new Graph();
+        for (int i = 0; i < depends.length; i++) {
+            String name = PackageGenerator.name(i);
+            g.addVertex(name);
+            for (String depend : depends[i]) {
+                g.addEdge(depend, name);
+            }
+        }
+        return g;
+    }
+}
@@ -0,0 +1,245 @@
+package directedgraph.bench;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import directedgraph.PackageGenerator;
+import directedgraph.PackageManager;
+
+/**
+ * Filename:   PackageManagerBenchmark.java
+ * Project:    p4
+ * Authors:    Sam Peaslee
+ *
+ * JMH benchmarks for the public PackageManager methods.
+ *
+ * The package graph is generated and written to a temporary json file
+ * once per trial. The queries use the last package, which has the deepest
+ * dependencies in every shape, and a package from the middle of the graph
+ * as the already installed package for toInstall.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class PackageManagerBenchmark {
+
+    // Seed of the generated graphs
+    static final long SEED = 42;
+    // Number of shards for constructGraphSharded
+    static final int SHARDS = 32;
+    // Number of random pairs for dependsOn
+    static final int PAIRS = 1 << 16;
+    // Number of hosts, and installed packages on each, for 
+    // toInstallForHosts
+    static final int HOSTS = 1024;
+    static final int INSTALLED = 64;
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    @Param({"chain", "fan", "random", "powerlaw", "diamond"})
+    String shape;
+
+    // Json file of the generated graph
+    Path json;
+    // The same graph split into shards
+    List<String> shards;
+    // PackageManager built from json in setup, with no install order
+    // cache so every query does the work
+    PackageManager pm;
+    // The same graph with the default install order cache
+    PackageManager cached;
+    // Package with the deepest dependencies
+    String last;
+    // Package from the middle of the graph
+    String middle;
+    // Random pairs of packages for dependsOn, and the next pair to ask
+    String[] pkgs;
+    String[] dependencies;
+    int next;
+    // Packages installed on each host
+    List<List<String>> hosts;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        String[][] depends =
+            PackageGenerator.generate(shape, size, SEED);
+        json = PackageGenerator.writeTempJson(depends);
+        Path directory = Files.createTempDirectory("shards");
+        directory.toFile().deleteOnExit();
+        shards = PackageGenerator.writeShards(depends, SHARDS, directory);
+        for (String shard : shards) {
+            new File(shard).deleteOnExit();
+        }
+        pm = new PackageManager(0);
+        pm.constructGraph(json.toString());
+        cached = new PackageManager();
+        cached.constructGraph(json.toString());
+        last = PackageGenerator.name(size - 1);
+        middle = PackageGenerator.name(size / 2);
+        Random random = new Random(SEED);
+        pkgs = new String[PAIRS];
+        dependencies = new String[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            int a = random.nextInt(size);
+            pkgs[i] = PackageGenerator.name(a);
+            dependencies[i] = PackageGenerator.name(random.nextInt(a + 1));
+        }
+        hosts = new ArrayList<>();
+        for (int h = 0; h < HOSTS; h++) {
+            List<String> installed = new ArrayList<>();
+            for (int i = 0; i < INSTALLED; i++) {
+                installed.add(PackageGenerator.name(random.nextInt(size)));
+            }
+            hosts.add(installed);
+        }
+        // Build the reachability index and the installation order kept up
+        // to date by addDependency before measuring
+        pm.dependsOn(last, middle);
+        pm.getInstallationOrderForAllPackages();
+    }
+
+    @Benchmark
+    public PackageManager constructGraph() throws Exception {
+        PackageManager built = new PackageManager();
+        built.constructGraph(json.toString());
+        return built;
+    }
+
+    /**
+     * Builds the graph from the shards, parsed in parallel
+     */
+    @Benchmark
+    public PackageManager constructGraphSharded() throws Exception {
+        PackageManager built = new PackageManager();
+        built.constructGraph(shards);
+        return built;
+    }
+
+    @Benchmark
+    public List<String> getInstallationOrder() throws Exception {
+        return pm.getInstallationOrder(last);
+    }
+
+    /**
+     * getInstallationOrder of a few popular packages, after the first time
+     * each one is in the cache
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<String> getInstallationOrderCached() throws Exception {
+        int i = next++ & 15;
+        return cached.getInstallationOrder(dependencies[i]);
+    }
+
+    @Benchmark
+    public List<String> toInstall() throws Exception {
+        return pm.toInstall(last, middle);
+    }
+
+    /**
+     * The packages every host needs to install the last package and the
+     * middle package, hosts are worked out in parallel
+     */
+    @Benchmark
+    public List<List<String>> toInstallForHosts() throws Exception {
+        return pm.toInstallForHosts(Arrays.asList(last, middle), hosts);
+    }
+
+    /**
+     * One dependsOn check for the next random pair of packages, the
+     * dependency always has a smaller number so it may be a dependency
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean dependsOn() throws Exception {
+        int i = next++ & (PAIRS - 1);
+        return pm.dependsOn(pkgs[i], dependencies[i]);
+    }
+
+    /**
+     * Adds the next random pair as a dependency and removes it again, the
+     * dependency always has a smaller number so no cycle is closed and 
+     * the installation order is repaired instead of found again
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void addRemoveDependency() throws Exception {
+        int i = next++ & (PAIRS - 1);
+        if (pkgs[i].equals(dependencies[i])) return;
+        pm.addDependency(pkgs[i], dependencies[i]);
+        pm.removeDependency(pkgs[i], dependencies[i]);
+    }
+
+    @Benchmark
+    public List<String> getInstallationOrderForAllPackages() throws Exception {
+        return pm.getInstallationOrderForAllPackages();
+    }
+
+    /**
+     * Installs every package with an installer that does nothing, on the
+     * common pool, so only the cost of the scheduling is measured
+     */
+    @Benchmark
+    public void installSchedule() throws Exception {
+        pm.getInstallSchedule().install(pkg -> { }, 
+            ForkJoinPool.commonPool(), 
+            ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * Finds the depth, height and slack of every package and reads back
+     * the ten longest chains
+     */
+    @Benchmark
+    public List<List<String>> criticalPathReport() throws Exception {
+        return pm.getCriticalPathReport().topChains(10);
+    }
+
+    @Benchmark
+    public String getPackageWithMaxDependencies() throws Exception {
+        return pm.getPackageWithMaxDependencies();
+    }
+
+    /**
+     * toInstall answered from the closure store with one AND-NOT of two
+     * compressed bitmaps. The store is built by the first warmup call, 
+     * the random shape at a million packages needs more than 8 GB for it.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<String> toInstallFromClosures() throws Exception {
+        return pm.getClosureStore().toInstall(List.of(last), List.of(middle));
+    }
+
+    /**
+     * The ten packages with the most dependencies, estimated with
+     * sketches of 1 KB
+     */
+    @Benchmark
+    public Object estimatePackagesWithMaxDependencies() throws Exception {
+        return pm.estimatePackagesWithMaxDependencies(10, 10);
+    }
+}
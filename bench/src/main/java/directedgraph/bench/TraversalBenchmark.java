@@ -0,0 +1,137 @@
+package directedgraph.bench;
+
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import directedgraph.FrozenGraph;
+import directedgraph.Graph;
+import directedgraph.PackageGenerator;
+import directedgraph.Traversal;
+
+/**
+ * Filename:   TraversalBenchmark.java
+ * Project:    p4
+ * Authors:    Sam Peaslee
+ *
+ * JMH benchmarks for walking a FrozenGraph with Traversal, next to the
+ * walk the package managers used to make, which allocates a visited array
+ * and a boxed queue every time.
+ *
+ * Every walk starts at the last package and follows the predecessors, so
+ * it reaches every package the last package depends on. Run with the GC
+ * profiler to see the allocation rate, once warmed up the Traversal walks
+ * should show close to zero gc.alloc.rate.norm:
+ *
+ *     java -jar bench/target/benchmarks.jar Traversal -prof gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class TraversalBenchmark {
+
+    // Seed of the generated graphs
+    static final long SEED = 42;
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    @Param({"chain", "fan", "random", "powerlaw", "diamond"})
+    String shape;
+
+    // Frozen graph of all packages, edges from a dependency to the
+    // package that depends on it
+    FrozenGraph frozen;
+    // Id of the package with the deepest dependencies
+    int last;
+    // Counts the vertices a walk reaches, kept so the walks allocate no
+    // visitor
+    final Counter counter = new Counter();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[][] depends = PackageGenerator.generate(shape, size, SEED);
+        Graph graph = new Graph();
+        for (int i = 0; i < depends.length; i++) {
+            String name = PackageGenerator.name(i);
+            graph.addVertex(name);
+            for (String depend : depends[i]) {
+                graph.addEdge(depend, name);
+            }
+        }
+        frozen = graph.freeze();
+        last = frozen.idOf(PackageGenerator.name(size - 1));
+    }
+
+    @Benchmark
+    public int breadthFirst() {
+        counter.count = 0;
+        try (Traversal walk = Traversal.begin(frozen)) {
+            walk.breadthFirst(last, Traversal.Direction.PREDECESSORS,
+                counter);
+        }
+        return counter.count;
+    }
+
+    @Benchmark
+    public int depthFirst() {
+        counter.count = 0;
+        try (Traversal walk = Traversal.begin(frozen)) {
+            walk.depthFirst(last, Traversal.Direction.PREDECESSORS, counter);
+        }
+        return counter.count;
+    }
+
+    /**
+     * The breadth first walk done with a new visited array and a linked
+     * list queue of names, the way hasCycleAt used to walk
+     */
+    @Benchmark
+    public int breadthFirstAllocating() {
+        boolean[] visited = new boolean[frozen.order()];
+        Queue<String> queue = new LinkedList<>();
+        String start = frozen.nameOf(last);
+        visited[last] = true;
+        queue.add(start);
+        int count = 0;
+        while (!queue.isEmpty()) {
+            String current = queue.remove();
+            count++;
+            for (String pred : frozen.getPredecessorsOf(current)) {
+                int id = frozen.idOf(pred);
+                if (visited[id]) continue;
+                visited[id] = true;
+                queue.add(pred);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Visitor that counts the vertices entered
+     */
+    static class Counter implements Traversal.Visitor<RuntimeException> {
+        int count;
+
+        @Override
+        public boolean enter(int vertex) {
+            count++;
+            return true;
+        }
+    }
+}
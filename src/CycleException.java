@@ -1,5 +0,0 @@
-
-@SuppressWarnings("serial")
-public class CycleException extends Exception {
-	
-}
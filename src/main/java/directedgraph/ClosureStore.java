@@ -0,0 +1,333 @@
+package directedgraph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Filename:   ClosureStore.java
+ * Project:    p4
+ * Authors:    Sam Peaslee
+ *
+ * Transitive dependencies of every package of an acyclic dependency graph,
+ * each kept as a CompressedBitmap, so any dependency query is answered
+ * from the stored sets instead of walking the graph.
+ *
+ * Packages are numbered in the order depth first walks of their
+ * dependencies leave them, a topological order in which the dependencies
+ * reached through one package get consecutive numbers. So a package only
+ * depends on packages with smaller numbers and its dependencies are
+ * mostly long runs of numbers, which take a few bytes each. The store is
+ * built along that order: the set of a package is the union of the sets
+ * of its dependencies and the dependencies themselves, which are all done
+ * by then. Sets are never changed, a set shared by many packages is still
+ * stored once for each.
+ *
+ * Because the numbers follow a topological order, the packages of any set
+ * listed by increasing number are in a valid installation order, and
+ * toInstall is the union of the requested sets minus the union of the
+ * installed ones.
+ *
+ * Layout of a store file, all numbers are big endian:
+ *   int     magic number "PKGC"
+ *   int     format version
+ *   int     V, number of packages
+ *   V times int length and UTF-8 bytes of each name, in package order
+ *   V times the dependency set of each package, see CompressedBitmap
+ *   long    CRC32 checksum of everything before it
+ */
+public class ClosureStore {
+
+    // "PKGC" in ASCII
+    private static final int MAGIC = 0x504B4743;
+    private static final int VERSION = 1;
+
+    // Name of each package number
+    private final String[] names;
+    // Number of each package
+    private final HashMap<String, Integer> numbers;
+    // Numbers of the transitive dependencies of each package number
+    private final CompressedBitmap[] closures;
+
+    /**
+     * Builds the dependency sets of every package of a scheduled graph
+     * @param graph acyclic graph, an edge u -> v means v depends on u
+     * @param schedule schedule of graph.compact()
+     */
+    ClosureStore(FrozenGraph graph, InstallSchedule schedule) {
+        int[] order = numbering(graph, schedule);
+        int[] offsets = graph.predecessorOffsets();
+        int[] predecessors = graph.predecessors();
+        int n = graph.order();
+        names = new String[n];
+        int[] number = new int[n];
+        for (int i = 0; i < n; i++) {
+            names[i] = graph.nameOf(order[i]);
+            number[order[i]] = i;
+        }
+        numbers = numbersOf(names);
+        closures = new CompressedBitmap[n];
+        CompressedBitmap.Builder builder = new CompressedBitmap.Builder(n);
+        for (int i = 0; i < n; i++) {
+            int v = order[i];
+            // Every dependency comes earlier in the order, its set is done
+            for (int j = offsets[v]; j < offsets[v + 1]; j++) {
+                int dependency = number[predecessors[j]];
+                builder.or(closures[dependency]).add(dependency);
+            }
+            closures[i] = builder.build();
+        }
+    }
+
+    private ClosureStore(String[] names, CompressedBitmap[] closures) {
+        this.names = names;
+        this.closures = closures;
+        numbers = numbersOf(names);
+    }
+
+    /**
+     * Returns the number of packages a package depends on, directly or
+     * through the dependencies of its dependencies
+     * @param pkg name of the package
+     * @return number of transitive dependencies
+     * @throws PackageNotFoundException if the package is not in the store
+     */
+    public int closureSize(String pkg) throws PackageNotFoundException {
+        return closures[numberOf(pkg)].cardinality();
+    }
+
+    /**
+     * Checks if a package depends on another one, directly or through the
+     * dependencies of its dependencies
+     * @param pkg the package that may depend on dependency
+     * @param dependency the package that may be a dependency of pkg
+     * @return true if dependency has to be installed before pkg
+     * @throws PackageNotFoundException if either package is not in the
+     * store
+     */
+    public boolean dependsOn(String pkg, String dependency)
+        throws PackageNotFoundException {
+        return closures[numberOf(pkg)].contains(numberOf(dependency));
+    }
+
+    /**
+     * Returns every package a package depends on
+     * @param pkg name of the package
+     * @return its transitive dependencies, in a valid installation order
+     * @throws PackageNotFoundException if the package is not in the store
+     */
+    public List<String> dependenciesOf(String pkg)
+        throws PackageNotFoundException {
+        return namesOf(closures[numberOf(pkg)]);
+    }
+
+    /**
+     * Returns every package that depends on a package, the packages that
+     * may break when it changes
+     * @param pkg name of the package
+     * @return packages depending on it, in a valid installation order
+     * @throws PackageNotFoundException if the package is not in the store
+     */
+    public List<String> dependentsOf(String pkg)
+        throws PackageNotFoundException {
+        int number = numberOf(pkg);
+        List<String> dependents = new ArrayList<>();
+        // Only packages later in the order can depend on it
+        for (int i = number + 1; i < closures.length; i++) {
+            if (closures[i].contains(number)) dependents.add(names[i]);
+        }
+        return dependents;
+    }
+
+    /**
+     * Returns the packages that need to be newly installed to install
+     * some packages where others are installed already, see
+     * PackageManager.toInstall. Found with one AND-NOT of two sets.
+     * @param requested packages to be installed
+     * @param installed packages already installed
+     * @return the requested packages and their dependencies that are not
+     * installed, in a valid installation order
+     * @throws PackageNotFoundException if any of the packages is not in
+     * the store
+     */
+    public List<String> toInstall(Collection<String> requested,
+        Collection<String> installed) throws PackageNotFoundException {
+        CompressedBitmap.Builder builder =
+            new CompressedBitmap.Builder(closures.length);
+        for (String pkg : requested) {
+            int number = numberOf(pkg);
+            builder.or(closures[number]).add(number);
+        }
+        CompressedBitmap needed = builder.build();
+        for (String pkg : installed) {
+            int number = numberOf(pkg);
+            builder.or(closures[number]).add(number);
+        }
+        return namesOf(needed.andNot(builder.build()));
+    }
+
+    /**
+     * Returns the number of packages in the store
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Returns about how many bytes the dependency sets take in memory
+     */
+    public long sizeInBytes() {
+        long size = 16L * closures.length;
+        for (CompressedBitmap closure : closures) {
+            size += closure.sizeInBytes();
+        }
+        return size;
+    }
+
+    /**
+     * Writes the store to a file. The file is written to a temporary file
+     * first and then moved into place, so readers never see a partly
+     * written store.
+     * @param storePath path of the store file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(String storePath) throws IOException {
+        Path target = Paths.get(storePath).toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), "closures",
+            ".tmp");
+        try {
+            CRC32 crc = new CRC32();
+            try (OutputStream file = Files.newOutputStream(temp);
+                DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(
+                        new CheckedOutputStream(file, crc), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(names.length);
+                for (String name : names) {
+                    byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+                for (CompressedBitmap closure : closures) {
+                    closure.write(out);
+                }
+                // The checksum covers everything written before it
+                out.flush();
+                out.writeLong(crc.getValue());
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Reads a store written by write()
+     * @param storePath path of the store file
+     * @return the store, or null if the file does not exist or is corrupt
+     * @throws IOException if the file cannot be read
+     */
+    public static ClosureStore read(String storePath) throws IOException {
+        Path path = Paths.get(storePath);
+        if (!Files.isRegularFile(path)) return null;
+        long size = Files.size(path);
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+            new BufferedInputStream(Files.newInputStream(path), 1 << 16),
+            crc))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+            int n = in.readInt();
+            // Each package takes at least 8 bytes
+            if (n < 0 || 8L * n > size) return null;
+            String[] names = new String[n];
+            for (int i = 0; i < n; i++) {
+                int length = in.readInt();
+                if (length < 0 || length > size) return null;
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                names[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            CompressedBitmap[] closures = new CompressedBitmap[n];
+            for (int i = 0; i < n; i++) {
+                closures[i] = CompressedBitmap.read(in, n);
+                if (closures[i] == null) return null;
+            }
+            // The checksum covers everything read before it
+            long expected = crc.getValue();
+            if (in.readLong() != expected || in.read() != -1) return null;
+            return new ClosureStore(names, closures);
+        } catch (EOFException e) {
+            // Cut short
+            return null;
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////
+    /*Private methods*/
+    /**
+     * Order of the package numbers, the packages left by depth first
+     * walks of the dependencies, started from the last layers of the
+     * schedule. Each package is left after its dependencies, and the
+     * dependencies reached through one package get consecutive numbers.
+     */
+    private static int[] numbering(FrozenGraph graph,
+        InstallSchedule schedule) {
+        int[] layers = schedule.order();
+        int[] order = new int[layers.length];
+        int[] count = new int[1];
+        try (Traversal walk = Traversal.begin(graph)) {
+            for (int i = layers.length - 1; i >= 0; i--) {
+                walk.depthFirst(layers[i], Traversal.Direction.PREDECESSORS,
+                    new Traversal.Visitor<RuntimeException>() {
+                        public boolean enter(int v) {
+                            return true;
+                        }
+
+                        public void leave(int v) {
+                            order[count[0]++] = v;
+                        }
+                    });
+            }
+        }
+        return order;
+    }
+
+    private int numberOf(String pkg) throws PackageNotFoundException {
+        Integer number = numbers.get(pkg);
+        if (number == null)
+            throw new PackageNotFoundException();
+        return number;
+    }
+
+    private List<String> namesOf(CompressedBitmap set) {
+        List<String> list = new ArrayList<>(set.cardinality());
+        set.forEach(number -> list.add(names[number]));
+        return list;
+    }
+
+    private static HashMap<String, Integer> numbersOf(String[] names) {
+        HashMap<String, Integer> numbers = new HashMap<>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            numbers.put(names[i], i);
+        }
+        return numbers;
+    }
+}
@@ -0,0 +1,411 @@
+package directedgraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Filename:   CompactGraph.java
+ * Project:    p4
+ * Authors:    Sam Peaslee
+ *
+ * Directed and unweighted graph implementation that stores its edges in
+ * compressed sparse row (CSR) form.
+ *
+ * Every vertex name is interned to a dense int id. The successors of vertex
+ * id are stored in targets[offsets[id]] ... targets[offsets[id + 1] - 1], so
+ * each edge costs a single int once the graph is compacted.
+ *
+ * Mutations (addEdge, removeEdge, removeVertex) are buffered in a log and
+ * are only applied when the graph is compacted. Compaction happens
+ * automatically before any method that reads edges, or when compact() is
+ * called. Removing vertices renumbers the remaining vertices during
+ * compaction so the ids stay dense, ids are only stable between mutations.
+ */
+public class CompactGraph implements GraphADT {
+
+    // Operation codes for the buffered mutation log
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+
+    // Maps each vertex name to its id
+    private HashMap<String, Integer> ids;
+    // Vertex name for each id, null if the vertex was removed
+    private String[] names;
+    // Number of ids handed out, including removed vertices
+    private int numIds;
+    // Number of vertices in the graph
+    private int numVertices;
+
+    // CSR adjacency of the last compaction, offsets has numCompacted + 1
+    // entries, vertices added since then have no compacted edges
+    private int[] offsets;
+    private int[] targets;
+    // Number of vertex ids covered by offsets
+    private int numCompacted;
+    // Number of predecessors of each vertex, null until first needed
+    private int[] inDegree;
+
+    // Buffered mutations, applied in order by compact()
+    private int[] logSrc;
+    private int[] logDst;
+    private byte[] logOp;
+    private int logSize;
+    // True if there are buffered mutations or removed vertices
+    private boolean dirty;
+
+    /*
+     * Default no-argument constructor
+     */
+    public CompactGraph() {
+        this(16, 16);
+    }
+
+    /**
+     * Constructor that sizes the internal arrays up front
+     * @param expectedVertices number of vertices the graph will likely hold
+     * @param expectedEdges number of edges the graph will likely hold
+     */
+    public CompactGraph(int expectedVertices, int expectedEdges) {
+        expectedVertices = Math.max(expectedVertices, 1);
+        expectedEdges = Math.max(expectedEdges, 1);
+        ids = new HashMap<>(expectedVertices * 4 / 3 + 1);
+        names = new String[expectedVertices];
+        offsets = new int[1];
+        targets = new int[0];
+        logSrc = new int[expectedEdges];
+        logDst = new int[expectedEdges];
+        logOp = new byte[expectedEdges];
+    }
+
+    /**
+     * Constructor for a graph that is already compacted, used to load
+     * a graph from a snapshot without going through the mutation log
+     * @param names vertex name of each id
+     * @param offsets CSR offsets, names.length + 1 entries
+     * @param targets CSR targets
+     * @param inDegree number of predecessors of each vertex, or null
+     */
+    CompactGraph(String[] names, int[] offsets, int[] targets, int[] inDegree) {
+        this(names.length, 1);
+        for (String name : names) {
+            intern(name);
+        }
+        this.numCompacted = names.length;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.inDegree = inDegree;
+    }
+
+    /**
+     * Add new vertex to the graph.
+     *
+     * If vertex is null or already exists,
+     * method ends without adding a vertex or
+     * throwing an exception.
+     */
+    public void addVertex(String vertex) {
+        if (vertex == null || ids.containsKey(vertex)) return;
+        intern(vertex);
+    }
+
+    /**
+     * Remove a vertex and all associated
+     * edges from the graph.
+     *
+     * If vertex is null or does not exist,
+     * method ends without removing a vertex, edges,
+     * or throwing an exception.
+     *
+     * The edges of the vertex are dropped at the next compaction.
+     */
+    public void removeVertex(String vertex) {
+        if (vertex == null) return;
+        Integer id = ids.remove(vertex);
+        if (id == null) return;
+        names[id] = null;
+        numVertices--;
+        dirty = true;
+    }
+
+    /**
+     * Add the edge from vertex1 to vertex2
+     * to this graph.  (edge is directed and unweighted)
+     * If either vertex does not exist,
+     * add vertex, and add edge, no exception is thrown.
+     * If the edge exists in the graph,
+     * no edge is added and no exception is thrown.
+     */
+    public void addEdge(String vertex1, String vertex2) {
+        if (vertex1 == null || vertex2 == null) return;
+        int src = intern(vertex1);
+        int dst = intern(vertex2);
+        log(src, dst, ADD);
+    }
+
+    /**
+     * Remove the edge from vertex1 to vertex2
+     * from this graph.  (edge is directed and unweighted)
+     * If either vertex does not exist,
+     * or if an edge from vertex1 to vertex2 does not exist,
+     * no edge is removed and no exception is thrown.
+     */
+    public void removeEdge(String vertex1, String vertex2) {
+        if (vertex1 == null || vertex2 == null) return;
+        Integer src = ids.get(vertex1);
+        Integer dst = ids.get(vertex2);
+        if (src == null || dst == null) return;
+        log(src, dst, REMOVE);
+    }
+
+    /**
+     * Returns a read-only Set that contains all the vertices
+     */
+    public Set<String> getAllVertices() {
+        return Collections.unmodifiableSet(ids.keySet());
+    }
+
+    /**
+     * Get all the neighbor (adjacent) vertices of a vertex
+     *
+     * The list is a copy, changes to the graph are not reflected in it.
+     */
+    public List<String> getAdjacentVerticesOf(String vertex) {
+        int id = idOf(vertex);
+        if (id < 0) return new ArrayList<String>();
+        List<String> adjacent = new ArrayList<>(outDegree(id));
+        for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+            adjacent.add(names[targets[i]]);
+        }
+        return adjacent;
+    }
+
+    /**
+     * Returns the number of edges in this graph.
+     */
+    public int size() {
+        compact();
+        return offsets[numCompacted];
+    }
+
+    /**
+     * Returns the number of vertices in this graph.
+     */
+    public int order() {
+        return numVertices;
+    }
+
+    /**
+     * Returns the id of a vertex, ids run from 0 to order() - 1
+     * @param vertex name of the vertex
+     * @return id of the vertex or -1 if it is not in the graph
+     */
+    public int idOf(String vertex) {
+        if (vertex == null) return -1;
+        compact();
+        Integer id = ids.get(vertex);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the name of the vertex with the given id
+     * @param id vertex id
+     * @return name of the vertex
+     */
+    public String nameOf(int id) {
+        compact();
+        return names[id];
+    }
+
+    /**
+     * Returns the CSR offsets array, the successors of vertex id are
+     * targets()[offsets()[id]] up to targets()[offsets()[id + 1] - 1].
+     * The array is shared with the graph and must not be modified.
+     * @return offsets array with order() + 1 entries
+     */
+    public int[] offsets() {
+        compact();
+        return offsets;
+    }
+
+    /**
+     * Returns the CSR targets array, see offsets().
+     * The array is shared with the graph and must not be modified.
+     * @return targets array with at least size() entries
+     */
+    public int[] targets() {
+        compact();
+        return targets;
+    }
+
+    /**
+     * Returns the number of successors of a vertex
+     * @param id vertex id
+     * @return number of outgoing edges
+     */
+    public int outDegree(int id) {
+        compact();
+        return offsets[id + 1] - offsets[id];
+    }
+
+    /**
+     * Counts the number of predecessors of every vertex.
+     * The counts are kept until the graph changes.
+     * @return array indexed by vertex id holding the number of incoming
+     * edges, a new copy on every call so it can be modified
+     */
+    public int[] inDegrees() {
+        compact();
+        if (inDegree == null) {
+            int[] counts = new int[numCompacted];
+            for (int i = 0; i < offsets[numCompacted]; i++) {
+                counts[targets[i]]++;
+            }
+            inDegree = counts;
+        }
+        return inDegree.clone();
+    }
+
+    /**
+     * Applies all buffered mutations and rebuilds the CSR arrays.
+     * Does nothing if there are no buffered mutations.
+     * Runs in O(V + E + number of buffered mutations).
+     */
+    public void compact() {
+        if (!dirty && numCompacted == numIds) return;
+        // Give the remaining vertices new dense ids, keeping their order
+        int[] newId = new int[numIds];
+        String[] newNames = new String[Math.max(numVertices, 1)];
+        int next = 0;
+        for (int id = 0; id < numIds; id++) {
+            if (names[id] == null) {
+                newId[id] = -1;
+            } else {
+                newId[id] = next;
+                newNames[next] = names[id];
+                next++;
+            }
+        }
+        // Stable counting sort of the log by source vertex so each vertex
+        // sees its own mutations in the order they were made
+        int[] logStart = new int[next + 1];
+        for (int i = 0; i < logSize; i++) {
+            int src = newId[logSrc[i]];
+            if (src >= 0 && newId[logDst[i]] >= 0) logStart[src + 1]++;
+        }
+        for (int v = 0; v < next; v++) {
+            logStart[v + 1] += logStart[v];
+        }
+        int[] sorted = new int[logStart[next]];
+        int[] fill = Arrays.copyOf(logStart, next);
+        for (int i = 0; i < logSize; i++) {
+            int src = newId[logSrc[i]];
+            if (src >= 0 && newId[logDst[i]] >= 0) sorted[fill[src]++] = i;
+        }
+        // Rebuild the adjacency of every vertex
+        // present[t] == v + 1 means the edge v -> t exists, and pos[t] is the
+        // position in scratch where it was last added
+        int[] present = new int[next];
+        int[] pos = new int[next];
+        int[] scratch = new int[16];
+        int[] newOffsets = new int[next + 1];
+        int[] newTargets = new int[Math.max(offsets[numCompacted] + logStart[next], 1)];
+        int numTargets = 0;
+        for (int old = 0; old < numIds; old++) {
+            int v = newId[old];
+            if (v < 0) continue;
+            int stamp = v + 1;
+            int n = 0;
+            // Existing edges of the vertex
+            if (old < numCompacted) {
+                for (int i = offsets[old]; i < offsets[old + 1]; i++) {
+                    int t = newId[targets[i]];
+                    if (t < 0) continue;
+                    if (n == scratch.length) scratch = Arrays.copyOf(scratch, n * 2);
+                    present[t] = stamp;
+                    pos[t] = n;
+                    scratch[n++] = t;
+                }
+            }
+            // Buffered mutations of the vertex
+            for (int k = logStart[v]; k < logStart[v + 1]; k++) {
+                int i = sorted[k];
+                int t = newId[logDst[i]];
+                if (logOp[i] == ADD) {
+                    if (present[t] == stamp) continue;
+                    if (n == scratch.length) scratch = Arrays.copyOf(scratch, n * 2);
+                    present[t] = stamp;
+                    pos[t] = n;
+                    scratch[n++] = t;
+                } else if (present[t] == stamp) {
+                    present[t] = 0;
+                }
+            }
+            // Keep only edges that still exist, at the position they were
+            // last added
+            for (int i = 0; i < n; i++) {
+                int t = scratch[i];
+                if (present[t] == stamp && pos[t] == i) {
+                    newTargets[numTargets++] = t;
+                }
+            }
+            newOffsets[v + 1] = numTargets;
+        }
+        // Point the name index at the new ids
+        if (next != numIds) {
+            for (int v = 0; v < next; v++) {
+                ids.put(newNames[v], v);
+            }
+        }
+        names = newNames;
+        numIds = next;
+        numCompacted = next;
+        offsets = newOffsets;
+        targets = numTargets == newTargets.length ? newTargets
+            : Arrays.copyOf(newTargets, numTargets);
+        inDegree = null;
+        logSize = 0;
+        dirty = false;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    /*Private methods*/
+
+    /**
+     * Returns the id of a vertex, giving it a new id if it is not in the graph
+     * @param vertex name of the vertex
+     * @return id of the vertex
+     */
+    private int intern(String vertex) {
+        Integer id = ids.get(vertex);
+        if (id != null) return id;
+        if (numIds == names.length) names = Arrays.copyOf(names, numIds * 2);
+        names[numIds] = vertex;
+        ids.put(vertex, numIds);
+        numVertices++;
+        return numIds++;
+    }
+
+    /**
+     * Appends a mutation to the log
+     * @param src source vertex id
+     * @param dst destination vertex id
+     * @param op ADD or REMOVE
+     */
+    private void log(int src, int dst, byte op) {
+        if (logSize == logOp.length) {
+            int capacity = logSize * 2;
+            logSrc = Arrays.copyOf(logSrc, capacity);
+            logDst = Arrays.copyOf(logDst, capacity);
+            logOp = Arrays.copyOf(logOp, capacity);
+        }
+        logSrc[logSize] = src;
+        logDst[logSize] = dst;
+        logOp[logSize] = op;
+        logSize++;
+        dirty = true;
+    }
+}
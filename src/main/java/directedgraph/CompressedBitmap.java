@@ -0,0 +1,530 @@
+package directedgraph;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Filename:   CompressedBitmap.java
+ * Project:    p4
+ * Authors:    Sam Peaslee
+ *
+ * Immutable compressed set of non-negative ints, laid out like a Roaring
+ * bitmap.
+ *
+ * The ints are split by their high 16 bits into chunks of 65536, and each
+ * chunk that holds any int is kept in whichever container is smallest:
+ *   array   the low 16 bits of each int in order, 2 bytes an int, used
+ *           for at most 4096 ints
+ *   bitmap  one bit for each of the 65536 ints, 8 KB
+ *   run     start and length - 1 of each run of consecutive ints, 4 bytes
+ *           a run
+ * Sets of ids that are mostly consecutive, like the dependencies of a
+ * package when ids follow a topological order, take a few runs.
+ *
+ * Bitmaps are made with a Builder, which ORs sets and ints into one plain
+ * bitset and compresses the chunks it touched.
+ */
+final class CompressedBitmap {
+
+    // Container types, as written by write()
+    private static final byte ARRAY = 0;
+    private static final byte BITMAP = 1;
+    private static final byte RUN = 2;
+    // Most ints in an array container, past it a bitmap is smaller
+    private static final int MAX_ARRAY = 4096;
+    // Number of longs in the bitset of one chunk
+    private static final int WORDS = 1024;
+
+    static final CompressedBitmap EMPTY =
+        new CompressedBitmap(new char[0], new Container[0]);
+
+    // High 16 bits of each chunk in increasing order, and its container
+    private final char[] keys;
+    private final Container[] containers;
+    private final int cardinality;
+
+    private CompressedBitmap(char[] keys, Container[] containers) {
+        this.keys = keys;
+        this.containers = containers;
+        int count = 0;
+        for (Container c : containers) {
+            count += c.cardinality();
+        }
+        cardinality = count;
+    }
+
+    /**
+     * Returns the number of ints in the set
+     */
+    int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Checks if an int is in the set
+     * @param x non-negative int
+     * @return true if x is in the set
+     */
+    boolean contains(int x) {
+        int i = Arrays.binarySearch(keys, (char) (x >>> 16));
+        return i >= 0 && containers[i].contains((char) x);
+    }
+
+    /**
+     * Calls action with every int of the set, in increasing order
+     */
+    void forEach(IntConsumer action) {
+        for (int i = 0; i < keys.length; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    /**
+     * Returns the ints of this set that are not in another set
+     * @param other ints to leave out
+     * @return new set, or this one if nothing was left out
+     */
+    CompressedBitmap andNot(CompressedBitmap other) {
+        char[] resultKeys = new char[keys.length];
+        Container[] result = new Container[keys.length];
+        int count = 0;
+        boolean changed = false;
+        long[] words = null;
+        long[] remove = null;
+        int j = 0;
+        for (int i = 0; i < keys.length; i++) {
+            while (j < other.keys.length && other.keys[j] < keys[i]) j++;
+            Container c = containers[i];
+            if (j < other.keys.length && other.keys[j] == keys[i]) {
+                // Both sets have ints in the chunk, take them away as bits
+                if (words == null) {
+                    words = new long[WORDS];
+                    remove = new long[WORDS];
+                }
+                Arrays.fill(words, 0L);
+                Arrays.fill(remove, 0L);
+                c.orInto(words, 0);
+                other.containers[j].orInto(remove, 0);
+                for (int k = 0; k < WORDS; k++) {
+                    words[k] &= ~remove[k];
+                }
+                c = compress(words, 0);
+                changed = true;
+            }
+            if (c != null) {
+                resultKeys[count] = keys[i];
+                result[count++] = c;
+            }
+        }
+        if (!changed) return this;
+        return new CompressedBitmap(Arrays.copyOf(resultKeys, count),
+            Arrays.copyOf(result, count));
+    }
+
+    /**
+     * Returns about how many bytes the set takes in memory
+     */
+    long sizeInBytes() {
+        long size = 32 + 2L * keys.length + 16L * keys.length;
+        for (Container c : containers) {
+            size += c.sizeInBytes();
+        }
+        return size;
+    }
+
+    /**
+     * Writes the set, see read()
+     * @param out where to write it
+     * @throws IOException if it cannot be written
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeInt(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            out.writeChar(keys[i]);
+            containers[i].write(out);
+        }
+    }
+
+    /**
+     * Reads a set written by write()
+     * @param in where to read it from
+     * @param capacity every int of the set must be below it
+     * @return the set, or null if what was read is not a valid set
+     * @throws IOException if it cannot be read
+     */
+    static CompressedBitmap read(DataInput in, int capacity)
+        throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > (capacity + 0xFFFF) >>> 16) return null;
+        if (count == 0) return EMPTY;
+        char[] keys = new char[count];
+        Container[] containers = new Container[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = in.readChar();
+            if (i > 0 && keys[i] <= keys[i - 1]) return null;
+            containers[i] = Container.read(in);
+            if (containers[i] == null) return null;
+        }
+        return new CompressedBitmap(keys, containers);
+    }
+
+    /**
+     * Makes bitmaps out of sets and single ints below a capacity
+     */
+    static class Builder {
+        // Plain bitset of everything added since the last build
+        private final long[] dense;
+        // Chunks added to since the last build
+        private final boolean[] touched;
+        private final char[] touchedKeys;
+        private int touchedCount;
+
+        /**
+         * Creates a builder for ints from 0 to capacity - 1
+         */
+        Builder(int capacity) {
+            int chunks = (capacity + 0xFFFF) >>> 16;
+            dense = new long[chunks * WORDS];
+            touched = new boolean[chunks];
+            touchedKeys = new char[chunks];
+        }
+
+        /**
+         * Adds an int
+         */
+        Builder add(int x) {
+            touch(x >>> 16);
+            dense[x >>> 6] |= 1L << x;
+            return this;
+        }
+
+        /**
+         * Adds every int of a set
+         */
+        Builder or(CompressedBitmap set) {
+            for (int i = 0; i < set.keys.length; i++) {
+                touch(set.keys[i]);
+                set.containers[i].orInto(dense, set.keys[i] * WORDS);
+            }
+            return this;
+        }
+
+        /**
+         * Returns the set of everything added and starts over empty
+         */
+        CompressedBitmap build() {
+            if (touchedCount == 0) return EMPTY;
+            Arrays.sort(touchedKeys, 0, touchedCount);
+            char[] keys = new char[touchedCount];
+            Container[] containers = new Container[touchedCount];
+            int count = 0;
+            for (int i = 0; i < touchedCount; i++) {
+                int key = touchedKeys[i];
+                Container c = compress(dense, key * WORDS);
+                if (c != null) {
+                    keys[count] = (char) key;
+                    containers[count++] = c;
+                }
+                Arrays.fill(dense, key * WORDS, (key + 1) * WORDS, 0L);
+                touched[key] = false;
+            }
+            touchedCount = 0;
+            return new CompressedBitmap(Arrays.copyOf(keys, count),
+                Arrays.copyOf(containers, count));
+        }
+
+        private void touch(int key) {
+            if (!touched[key]) {
+                touched[key] = true;
+                touchedKeys[touchedCount++] = (char) key;
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////
+    /*Private methods*/
+    /**
+     * Smallest container for the bitset of one chunk, words[offset] up to
+     * words[offset + WORDS - 1], null if the chunk is empty
+     */
+    private static Container compress(long[] words, int offset) {
+        int count = 0;
+        int runs = 0;
+        long carry = 0;
+        for (int k = offset; k < offset + WORDS; k++) {
+            long w = words[k];
+            count += Long.bitCount(w);
+            // A run starts at each set bit whose lower neighbour is clear
+            runs += Long.bitCount(w & ~((w << 1) | carry));
+            carry = w >>> 63;
+        }
+        if (count == 0) return null;
+        int runBytes = 4 * runs;
+        int arrayBytes = count <= MAX_ARRAY ? 2 * count : Integer.MAX_VALUE;
+        if (runBytes < arrayBytes && runBytes < 8 * WORDS) {
+            return new RunContainer(words, offset, runs);
+        }
+        if (arrayBytes <= 8 * WORDS) {
+            return new ArrayContainer(words, offset, count);
+        }
+        return new BitmapContainer(
+            Arrays.copyOfRange(words, offset, offset + WORDS), count);
+    }
+
+    /**
+     * Ints of one chunk, by their low 16 bits
+     */
+    private abstract static class Container {
+        abstract int cardinality();
+
+        abstract boolean contains(char low);
+
+        /**
+         * Sets the bits of the container in a chunk bitset starting at
+         * words[offset]
+         */
+        abstract void orInto(long[] words, int offset);
+
+        abstract void forEach(int base, IntConsumer action);
+
+        abstract long sizeInBytes();
+
+        abstract void write(DataOutput out) throws IOException;
+
+        /**
+         * Reads a container written by write(), null if it is not valid
+         */
+        static Container read(DataInput in) throws IOException {
+            byte type = in.readByte();
+            int count = in.readInt();
+            if (type == ARRAY && count > 0 && count <= MAX_ARRAY) {
+                char[] values = new char[count];
+                for (int i = 0; i < count; i++) {
+                    values[i] = in.readChar();
+                }
+                return new ArrayContainer(values);
+            }
+            if (type == BITMAP && count > MAX_ARRAY && count <= 1 << 16) {
+                long[] words = new long[WORDS];
+                for (int k = 0; k < WORDS; k++) {
+                    words[k] = in.readLong();
+                }
+                return new BitmapContainer(words, count);
+            }
+            if (type == RUN && count > 0 && count <= 1 << 15) {
+                char[] runs = new char[2 * count];
+                for (int i = 0; i < runs.length; i++) {
+                    runs[i] = in.readChar();
+                }
+                return new RunContainer(runs);
+            }
+            return null;
+        }
+    }
+
+    private static final class ArrayContainer extends Container {
+        // Low 16 bits of each int, in increasing order
+        private final char[] values;
+
+        ArrayContainer(char[] values) {
+            this.values = values;
+        }
+
+        ArrayContainer(long[] words, int offset, int count) {
+            values = new char[count];
+            int i = 0;
+            for (int k = 0; k < WORDS; k++) {
+                long w = words[offset + k];
+                while (w != 0) {
+                    values[i++] = (char) (k * 64 + Long.numberOfTrailingZeros(w));
+                    w &= w - 1;
+                }
+            }
+        }
+
+        int cardinality() {
+            return values.length;
+        }
+
+        boolean contains(char low) {
+            return Arrays.binarySearch(values, low) >= 0;
+        }
+
+        void orInto(long[] words, int offset) {
+            for (char v : values) {
+                words[offset + (v >>> 6)] |= 1L << v;
+            }
+        }
+
+        void forEach(int base, IntConsumer action) {
+            for (char v : values) {
+                action.accept(base | v);
+            }
+        }
+
+        long sizeInBytes() {
+            return 16 + 2L * values.length;
+        }
+
+        void write(DataOutput out) throws IOException {
+            out.writeByte(ARRAY);
+            out.writeInt(values.length);
+            for (char v : values) {
+                out.writeChar(v);
+            }
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        // One bit for each low 16 bits
+        private final long[] words;
+        private final int count;
+
+        BitmapContainer(long[] words, int count) {
+            this.words = words;
+            this.count = count;
+        }
+
+        int cardinality() {
+            return count;
+        }
+
+        boolean contains(char low) {
+            return (words[low >>> 6] & 1L << low) != 0;
+        }
+
+        void orInto(long[] into, int offset) {
+            for (int k = 0; k < WORDS; k++) {
+                into[offset + k] |= words[k];
+            }
+        }
+
+        void forEach(int base, IntConsumer action) {
+            for (int k = 0; k < WORDS; k++) {
+                long w = words[k];
+                while (w != 0) {
+                    action.accept(base | k * 64
+                        + Long.numberOfTrailingZeros(w));
+                    w &= w - 1;
+                }
+            }
+        }
+
+        long sizeInBytes() {
+            return 16 + 8L * WORDS;
+        }
+
+        void write(DataOutput out) throws IOException {
+            out.writeByte(BITMAP);
+            out.writeInt(count);
+            for (long w : words) {
+                out.writeLong(w);
+            }
+        }
+    }
+
+    private static final class RunContainer extends Container {
+        // Start and length - 1 of each run, runs in increasing order
+        private final char[] runs;
+        private final int count;
+
+        RunContainer(char[] runs) {
+            this.runs = runs;
+            int total = 0;
+            for (int i = 1; i < runs.length; i += 2) {
+                total += runs[i] + 1;
+            }
+            count = total;
+        }
+
+        RunContainer(long[] words, int offset, int number) {
+            runs = new char[2 * number];
+            int total = 0;
+            int r = 0;
+            int start = -1;
+            for (int k = 0; k < WORDS; k++) {
+                long w = words[offset + k];
+                // Whole words inside or outside a run are skipped at once
+                if (start >= 0 ? w == -1L : w == 0L) continue;
+                for (int b = 0; b < 64; b++) {
+                    boolean set = (w & 1L << b) != 0;
+                    if (set && start < 0) {
+                        start = k * 64 + b;
+                    } else if (!set && start >= 0) {
+                        runs[r++] = (char) start;
+                        runs[r++] = (char) (k * 64 + b - 1 - start);
+                        total += k * 64 + b - start;
+                        start = -1;
+                    }
+                }
+            }
+            if (start >= 0) {
+                runs[r++] = (char) start;
+                runs[r++] = (char) (WORDS * 64 - 1 - start);
+                total += WORDS * 64 - start;
+            }
+            count = total;
+        }
+
+        int cardinality() {
+            return count;
+        }
+
+        boolean contains(char low) {
+            // Last run starting at or before low
+            int lo = 0;
+            int hi = runs.length / 2 - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (runs[2 * mid] <= low) lo = mid + 1;
+                else hi = mid - 1;
+            }
+            return hi >= 0 && low - runs[2 * hi] <= runs[2 * hi + 1];
+        }
+
+        void orInto(long[] words, int offset) {
+            for (int i = 0; i < runs.length; i += 2) {
+                int from = runs[i];
+                int to = from + runs[i + 1];
+                int first = from >>> 6;
+                int last = to >>> 6;
+                long firstMask = -1L << from;
+                long lastMask = -1L >>> (63 - (to & 63));
+                if (first == last) {
+                    words[offset + first] |= firstMask & lastMask;
+                    continue;
+                }
+                words[offset + first] |= firstMask;
+                for (int k = first + 1; k < last; k++) {
+                    words[offset + k] = -1L;
+                }
+                words[offset + last] |= lastMask;
+            }
+        }
+
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < runs.length; i += 2) {
+                int from = runs[i];
+                int to = from + runs[i + 1];
+                for (int v = from; v <= to; v++) {
+                    action.accept(base | v);
+                }
+            }
+        }
+
+        long sizeInBytes() {
+            return 16 + 2L * runs.length;
+        }
+
+        void write(DataOutput out) throws IOException {
+            out.writeByte(RUN);
+            out.writeInt(runs.length / 2);
+            for (char v : runs) {
+                out.writeChar(v);
+            }
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package directedgraph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Filename:   ConcurrentGraph.java
+ * Project:    p4
+ * Authors:    Sam Peaslee
+ *
+ * Directed and unweighted graph that many threads can change at once.
+ *
+ * Vertices are kept in a ConcurrentHashMap. The edges of a vertex are
+ * guarded by one of a fixed number of striped locks, picked by the hash of
+ * the vertex name, so threads adding edges between different vertices
+ * rarely wait on each other. An edge change takes the locks of both of its
+ * vertices, lower stripe first, so the successors and predecessors always
+ * agree. The vertex and edge counts are LongAdders, exact whenever no
+ * change is in progress.
+ *
+ * Reads never throw ConcurrentModificationException. getAllVertices is a
+ * live, weakly consistent view, and the adjacency methods return copies.
+ */
+public class ConcurrentGraph implements GraphADT {
+
+    /**
+     * A vertex of the graph. The edge lists are guarded by the stripe lock
+     * of name, once removed is set the node is no longer in the graph and
+     * no edges are added to it
+     */
+    private static class Node {
+        final String name;
+        // Vertices this vertex has an edge to, in the order added
+        final Edges successors = new Edges();
+        // Vertices that have an edge to this vertex, in the order added
+        final Edges predecessors = new Edges();
+        boolean removed;
+
+        Node(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Edges of one vertex in the order added. Most vertices have a few
+     * edges, so duplicates are found by scanning the list, a hash set is
+     * only built once the list gets long
+     */
+    private static class Edges extends ArrayList<Node> {
+        private static final long serialVersionUID = 1L;
+        private static final int SCAN_LIMIT = 16;
+        private HashSet<Node> set;
+
+        Edges() {
+            super(2);
+        }
+
+        /**
+         * Adds n if it is not already an edge
+         * @return true if n was added
+         */
+        boolean addNew(Node n) {
+            if (set != null) {
+                if (!set.add(n)) return false;
+            } else if (size() < SCAN_LIMIT) {
+                if (indexOf(n) >= 0) return false;
+            } else {
+                set = new HashSet<>(this);
+                if (!set.add(n)) return false;
+            }
+            add(n);
+            return true;
+        }
+
+        /**
+         * Removes n if it is an edge
+         * @return true if n was removed
+         */
+        boolean removeOld(Node n) {
+            if (set != null && !set.remove(n)) return false;
+            return remove(n);
+        }
+    }
+
+    // Vertices in the graph indexed by name
+    private final ConcurrentHashMap<String, Node> vertices;
+    // Locks guarding the edges of the vertices, length is a power of two
+    private final ReentrantLock[] locks;
+    private final LongAdder numVertices = new LongAdder();
+    private final LongAdder numEdges = new LongAdder();
+
+    /*
+     * Creates a graph with enough lock stripes for the cores of this machine
+     */
+    public ConcurrentGraph() {
+        this(16, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a graph
+     * @param expectedVertices number of vertices the graph is sized for
+     * @param stripes number of locks, rounded up to a power of two
+     */
+    public ConcurrentGraph(int expectedVertices, int stripes) {
+        vertices = new ConcurrentHashMap<>(expectedVertices);
+        int n = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        locks = new ReentrantLock[n];
+        for (int i = 0; i < n; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Add new vertex to the graph.
+     *
+     * If vertex is null or already exists,
+     * method ends without adding a vertex or
+     * throwing an exception.
+     */
+    public void addVertex(String vertex) {
+        if (vertex == null) return;
+        node(vertex);
+    }
+
+    /**
+     * Remove a vertex and all associated
+     * edges from the graph.
+     *
+     * If vertex is null or does not exist,
+     * method ends without removing a vertex, edges,
+     * or throwing an exception.
+     */
+    public void removeVertex(String vertex) {
+        if (vertex == null) return;
+        Node n = vertices.get(vertex);
+        if (n == null) return;
+        List<Node> preds;
+        List<Node> succs;
+        // Take the vertex out of the graph, from now on no edges are added
+        // to it, then remove the edges it already has
+        ReentrantLock lock = lockOf(vertex);
+        lock.lock();
+        try {
+            if (n.removed) return;
+            n.removed = true;
+            vertices.remove(vertex, n);
+            numVertices.decrement();
+            preds = new ArrayList<>(n.predecessors);
+            succs = new ArrayList<>(n.successors);
+        } finally {
+            lock.unlock();
+        }
+        for (Node pred : preds) {
+            unlink(pred, n);
+        }
+        for (Node succ : succs) {
+            unlink(n, succ);
+        }
+    }
+
+    /**
+     * Add the edge from vertex1 to vertex2
+     * to this graph.  (edge is directed and unweighted)
+     * If either vertex does not exist,
+     * add vertex, and add edge, no exception is thrown.
+     * If the edge exists in the graph,
+     * no edge is added and no exception is thrown.
+     */
+    public void addEdge(String vertex1, String vertex2) {
+        if (vertex1 == null | vertex2 == null) return;
+        while (true) {
+            Node v1 = node(vertex1);
+            Node v2 = node(vertex2);
+            lock(vertex1, vertex2);
+            try {
+                // A vertex was removed after it was looked up, look it up
+                // again so the edge goes to the vertex now in the graph
+                if (v1.removed | v2.removed) continue;
+                if (v1.successors.addNew(v2)) {
+                    v2.predecessors.addNew(v1);
+                    numEdges.increment();
+                }
+                return;
+            } finally {
+                unlock(vertex1, vertex2);
+            }
+        }
+    }
+
+    /**
+     * Remove the edge from vertex1 to vertex2
+     * from this graph.  (edge is directed and unweighted)
+     * If either vertex does not exist,
+     * or if an edge from vertex1 to vertex2 does not exist,
+     * no edge is removed and no exception is thrown.
+     */
+    public void removeEdge(String vertex1, String vertex2) {
+        if (vertex1 == null | vertex2 == null) return;
+        Node v1 = vertices.get(vertex1);
+        Node v2 = vertices.get(vertex2);
+        if (v1 == null | v2 == null) return;
+        unlink(v1, v2);
+    }
+
+    /**
+     * Returns a Set that contains all the vertices, a live view that can
+     * be read while the graph changes but not changed through
+     */
+    public Set<String> getAllVertices() {
+        return Collections.unmodifiableSet(vertices.keySet());
+    }
+
+    /**
+     * Get all the neighbor (adjacent) vertices of a vertex
+     * @return a copy of the successors of vertex, empty if vertex is not
+     * in the graph
+     */
+    public List<String> getAdjacentVerticesOf(String vertex) {
+        Node n = vertex == null ? null : vertices.get(vertex);
+        if (n == null) return new ArrayList<String>();
+        ReentrantLock lock = lockOf(vertex);
+        lock.lock();
+        try {
+            return names(n.successors);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get all the predecessor vertices of a vertex, the vertices that
+     * have an edge to it. The opposite of getAdjacentVerticesOf.
+     * @param vertex the specified vertex
+     * @return a copy of the predecessors of vertex, empty if vertex is not
+     * in the graph
+     */
+    public List<String> getPredecessorsOf(String vertex) {
+        Node n = vertex == null ? null : vertices.get(vertex);
+        if (n == null) return new ArrayList<String>();
+        ReentrantLock lock = lockOf(vertex);
+        lock.lock();
+        try {
+            return names(n.predecessors);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of edges in this graph.
+     */
+    public int size() {
+        return (int) numEdges.sum();
+    }
+
+    /**
+     * Returns the number of vertices in this graph.
+     */
+    public int order() {
+        return (int) numVertices.sum();
+    }
+
+////////////////////////////////////////////////////////////////////////////////
+    /*Private methods*/
+    /**
+     * Returns the node of vertex, adding it if it is not in the graph
+     */
+    private Node node(String vertex) {
+        Node n = vertices.get(vertex);
+        if (n != null) return n;
+        return vertices.computeIfAbsent(vertex, name -> {
+            numVertices.increment();
+            return new Node(name);
+        });
+    }
+
+    /**
+     * Removes the edge from v1 to v2 if it is in the graph. The edge is
+     * only counted by whoever takes v2 out of the successors of v1
+     */
+    private void unlink(Node v1, Node v2) {
+        lock(v1.name, v2.name);
+        try {
+            if (v1.successors.removeOld(v2)) {
+                v2.predecessors.removeOld(v1);
+                numEdges.decrement();
+            }
+        } finally {
+            unlock(v1.name, v2.name);
+        }
+    }
+
+    /**
+     * Names of the given nodes
+     */
+    private static List<String> names(List<Node> nodes) {
+        List<String> names = new ArrayList<>(nodes.size());
+        for (Node n : nodes) {
+            names.add(n.name);
+        }
+        return names;
+    }
+
+    /**
+     * Index of the lock guarding the edges of vertex
+     */
+    private int stripeOf(String vertex) {
+        int h = vertex.hashCode();
+        return (h ^ (h >>> 16)) & (locks.length - 1);
+    }
+
+    private ReentrantLock lockOf(String vertex) {
+        return locks[stripeOf(vertex)];
+    }
+
+    /**
+     * Locks the stripes of both vertices, lower stripe first so two
+     * threads never wait on each other
+     */
+    private void lock(String vertex1, String vertex2) {
+        int a = stripeOf(vertex1);
+        int b = stripeOf(vertex2);
+        locks[Math.min(a, b)].lock();
+        if (a != b) locks[Math.max(a, b)].lock();
+    }
+
+    private void unlock(String vertex1, String vertex2) {
+        int a = stripeOf(vertex1);
+        int b = stripeOf(vertex2);
+        if (a != b) locks[Math.max(a, b)].unlock();
+        locks[Math.min(a, b)].unlock();
+    }
+}
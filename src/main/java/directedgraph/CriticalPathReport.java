@@ -0,0 +1,240 @@
+package directedgraph;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Filename:   CriticalPathReport.java
+ * Project:    p4
+ * Authors:    Sam Peaslee
+ *
+ * Longest chains of an acyclic dependency graph, where an edge u -> v
+ * means v depends on u, and each package takes some cost to install.
+ *
+ * With every package installed as soon as its dependencies are, the
+ * depth of a package is when it is done: its cost plus the largest depth
+ * of its dependencies. The height of a package is its cost plus the
+ * largest height of the packages that depend on it. The longest chain
+ * through a package costs depth + height - cost, and the longest chain of
+ * all, the critical path, bounds the time of the whole install. The slack
+ * of a package is how much longer it could take without making the
+ * install longer, 0 for the packages on a critical path.
+ *
+ * Depths are found in one pass over a topological order and heights in
+ * one pass back, O(V + E) time. Every result is kept in arrays indexed by
+ * vertex id, together with the dependency each depth came from, so the
+ * chains can be read back without searching the graph again.
+ */
+public class CriticalPathReport {
+
+    // Packages and their successors, must not change
+    private final CompactGraph graph;
+    // Depth, height and slack of each vertex id
+    private final double[] depths;
+    private final double[] heights;
+    private final double[] slacks;
+    // Dependency with the largest depth of each vertex id, -1 if it has
+    // no dependencies
+    private final int[] deepest;
+    // Cost of the longest chain
+    private final double length;
+
+    /**
+     * Finds the chains of a scheduled graph
+     * @param schedule schedule of the graph, its order is topological
+     * @param costs cost of each package, packages not in it cost 1
+     * @throws IllegalArgumentException if a cost is negative or not a
+     * number
+     */
+    CriticalPathReport(InstallSchedule schedule,
+        Map<String, ? extends Number> costs) {
+        graph = schedule.graph();
+        int[] order = schedule.order();
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int n = graph.order();
+        double[] cost = new double[n];
+        for (int v = 0; v < n; v++) {
+            Number c = costs.get(graph.nameOf(v));
+            cost[v] = c == null ? 1 : c.doubleValue();
+            if (!(cost[v] >= 0) || Double.isInfinite(cost[v]))
+                throw new IllegalArgumentException(
+                    "cost of " + graph.nameOf(v) + " is " + c);
+        }
+        // Depth of each vertex so far is the largest depth of the
+        // dependencies seen, every dependency comes first in the order
+        depths = new double[n];
+        deepest = new int[n];
+        Arrays.fill(deepest, -1);
+        double longest = 0;
+        for (int v : order) {
+            depths[v] += cost[v];
+            longest = Math.max(longest, depths[v]);
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                int w = targets[i];
+                if (deepest[w] < 0 || depths[v] > depths[w]) {
+                    depths[w] = depths[v];
+                    deepest[w] = v;
+                }
+            }
+        }
+        length = longest;
+        heights = new double[n];
+        slacks = new double[n];
+        for (int k = n - 1; k >= 0; k--) {
+            int v = order[k];
+            double height = 0;
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                height = Math.max(height, heights[targets[i]]);
+            }
+            heights[v] = height + cost[v];
+            slacks[v] = length - (depths[v] + height);
+        }
+    }
+
+    /**
+     * Reads the cost of packages from a json file of the form
+     *   {"packages": [{"name": "A", "cost": 2.5}, ...]}
+     * The costs can be kept in the package file itself, next to the
+     * dependencies, constructGraph skips the "cost" fields.
+     * @param jsonFilepath the name of the json file
+     * @return cost of each package that has a "cost" field
+     * @throws IOException if the file cannot be read
+     * @throws ParseException if the file is not valid json or is not a
+     * list of packages
+     */
+    public static Map<String, Double> readCosts(String jsonFilepath)
+        throws IOException, ParseException {
+        Object doc;
+        try (FileReader in = new FileReader(jsonFilepath)) {
+            doc = new JSONParser().parse(in);
+        }
+        Map<String, Double> costs = new HashMap<>();
+        Object packages = doc instanceof JSONObject
+            ? ((JSONObject) doc).get("packages") : null;
+        if (!(packages instanceof JSONArray))
+            throw new ParseException(ParseException.ERROR_UNEXPECTED_TOKEN);
+        for (Object pkg : (JSONArray) packages) {
+            if (!(pkg instanceof JSONObject))
+                throw new ParseException(
+                    ParseException.ERROR_UNEXPECTED_TOKEN, pkg);
+            Object name = ((JSONObject) pkg).get("name");
+            Object cost = ((JSONObject) pkg).get("cost");
+            if (name instanceof String && cost instanceof Number) {
+                costs.put((String) name, ((Number) cost).doubleValue());
+            }
+        }
+        return costs;
+    }
+
+    /**
+     * Returns the cost of the longest chain of packages, how long an
+     * install takes with enough threads
+     */
+    public double length() {
+        return length;
+    }
+
+    /**
+     * Returns when a package is done if every package is installed as
+     * soon as its dependencies are
+     * @param pkg name of the package
+     * @return depth of the package
+     * @throws PackageNotFoundException if the package does not exist
+     */
+    public double depthOf(String pkg) throws PackageNotFoundException {
+        return depths[idOf(pkg)];
+    }
+
+    /**
+     * Returns the cost of the longest chain from a package to a package
+     * nothing depends on, the package included
+     * @param pkg name of the package
+     * @return height of the package
+     * @throws PackageNotFoundException if the package does not exist
+     */
+    public double heightOf(String pkg) throws PackageNotFoundException {
+        return heights[idOf(pkg)];
+    }
+
+    /**
+     * Returns how much longer a package could take without making the
+     * longest chain longer
+     * @param pkg name of the package
+     * @return slack of the package, 0 if it is on a critical path
+     * @throws PackageNotFoundException if the package does not exist
+     */
+    public double slackOf(String pkg) throws PackageNotFoundException {
+        return slacks[idOf(pkg)];
+    }
+
+    /**
+     * Returns a longest chain of packages
+     * @return packages of the chain, each one a dependency of the next,
+     * empty if there are no packages
+     */
+    public List<String> criticalPath() {
+        List<List<String>> chains = topChains(1);
+        return chains.isEmpty() ? Collections.emptyList() : chains.get(0);
+    }
+
+    /**
+     * Returns the longest chains ending at the k packages that nothing
+     * depends on and are done last. Chains that end at the same package
+     * are not told apart, the one through the deepest dependencies is
+     * returned.
+     * @param k most chains to return
+     * @return chains, longest first and ties by package id, each one from
+     * a package with no dependencies to the package it ends at
+     */
+    public List<List<String>> topChains(int k) {
+        int[] offsets = graph.offsets();
+        // The k deepest ends so far, the shallowest on top
+        PriorityQueue<Integer> ends = new PriorityQueue<>((a, b) ->
+            depths[a] != depths[b] ? Double.compare(depths[a], depths[b])
+                : b - a);
+        for (int v = 0; v < depths.length && k > 0; v++) {
+            if (offsets[v] != offsets[v + 1]) continue;
+            ends.add(v);
+            if (ends.size() > k) ends.poll();
+        }
+        List<List<String>> chains = new ArrayList<>(ends.size());
+        while (!ends.isEmpty()) {
+            chains.add(chainTo(ends.poll()));
+        }
+        Collections.reverse(chains);
+        return chains;
+    }
+
+    ////////////////////////////////////////////////////////////////////////
+    /*Private methods*/
+    /**
+     * Longest chain ending at a vertex, read back through deepest
+     */
+    private List<String> chainTo(int end) {
+        List<String> chain = new ArrayList<>();
+        for (int v = end; v >= 0; v = deepest[v]) {
+            chain.add(graph.nameOf(v));
+        }
+        Collections.reverse(chain);
+        return chain;
+    }
+
+    private int idOf(String pkg) throws PackageNotFoundException {
+        int id = graph.idOf(pkg);
+        if (id < 0)
+            throw new PackageNotFoundException();
+        return id;
+    }
+}
@@ -0,0 +1,30 @@
+package directedgraph;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@SuppressWarnings("serial")
+public class CycleException extends Exception {
+	
+    // Packages on the cycle that was found, each package is a dependency
+    // of the next one and the last is a dependency of the first
+    private List<String> cycle;
+
+    public CycleException() {
+        cycle = new ArrayList<>();
+    }
+
+    public CycleException(List<String> cycle) {
+        super("Dependency cycle: " + String.join(" -> ", cycle)
+            + (cycle.isEmpty() ? "" : " -> " + cycle.get(0)));
+        this.cycle = cycle;
+    }
+
+    /**
+     * Returns the packages on the cycle that caused this exception
+     * @return packages on the cycle, empty if it is not known
+     */
+    public List<String> getCycle() {
+        return cycle;
+    }
+}
@@ -0,0 +1,236 @@
+package directedgraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Filename:   DependencySketches.java
+ * Project:    p4
+ * Authors:    Sam Peaslee
+ *
+ * Estimates the number of transitive dependencies of every package in an
+ * acyclic dependency graph, where an edge u -> v means v depends on u,
+ * with a HyperLogLog sketch per package instead of an exact set.
+ *
+ * A sketch of precision p has 2^p one-byte registers. Each package id is
+ * hashed, the first p bits of the hash pick a register and the register
+ * keeps the most leading zeros, plus one, seen in the rest of the hash.
+ * Two sketches are merged by keeping the larger of each pair of
+ * registers, which gives the sketch of the union of the two sets. So the
+ * sketches are pushed along the edges in topological order the same way
+ * DependencyCounts pushes its bitsets, and released once their package
+ * is counted. A package takes at most 2^p bytes however many packages it
+ * depends on.
+ *
+ * The estimates have a relative standard error of about 1.04 / sqrt(2^p),
+ * 1.6% at precision 12. Small counts are estimated by linear counting of
+ * the empty registers, which is much closer.
+ */
+public class DependencySketches {
+
+    // Smallest and largest precision, the largest takes 4 KB a package
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 12;
+
+    /**
+     * Estimated number of transitive dependencies of a package
+     */
+    public static class Estimate {
+        private final String pkg;
+        private final double count;
+        private final double error;
+
+        Estimate(String pkg, double count, double error) {
+            this.pkg = pkg;
+            this.count = count;
+            this.error = error;
+        }
+
+        /**
+         * Returns the name of the package
+         */
+        public String getPackage() {
+            return pkg;
+        }
+
+        /**
+         * Returns the estimated number of packages it depends on
+         */
+        public double getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the low end of the count, two standard errors below it,
+         * which the count is above about 95% of the time
+         */
+        public double getLow() {
+            return Math.max(0, count * (1 - 2 * error));
+        }
+
+        /**
+         * Returns the high end of the count, two standard errors above it
+         */
+        public double getHigh() {
+            return count * (1 + 2 * error);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %.0f [%.0f, %.0f]", pkg, count,
+                getLow(), getHigh());
+        }
+    }
+
+    // Graph the estimates are for
+    private final CompactGraph graph;
+    // Relative standard error of the estimates
+    private final double error;
+    // Estimated number of transitive dependencies of each vertex id
+    private final double[] estimates;
+
+    /**
+     * Estimates the transitive dependencies of every vertex of a graph
+     * @param graph acyclic graph, an edge u -> v means v depends on u
+     * @param precision log2 of the number of registers of each sketch,
+     * from MIN_PRECISION to MAX_PRECISION
+     * @throws IllegalArgumentException if the graph has a cycle or the
+     * precision is out of range
+     */
+    public DependencySketches(CompactGraph graph, int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION)
+            throw new IllegalArgumentException("precision " + precision);
+        this.graph = graph;
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int n = graph.order();
+        int m = 1 << precision;
+        error = 1.04 / Math.sqrt(m);
+        estimates = new double[n];
+        // Sketch of each vertex, null until a dependency reaches it
+        byte[][] sketches = new byte[n][];
+        // Sketches that were released and can be reused, all zero
+        ArrayList<byte[]> free = new ArrayList<>();
+        // Kahn's algorithm for the topological order
+        int[] numDepends = graph.inDegrees();
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        for (int v = 0; v < n; v++) {
+            if (numDepends[v] == 0) queue[tail++] = v;
+        }
+        while (head < tail) {
+            int v = queue[head++];
+            byte[] sketch = sketches[v];
+            sketches[v] = null;
+            // All dependencies of v have been merged into its sketch
+            if (sketch != null) estimates[v] = estimate(sketch);
+            // Merge the sketch of v, and v itself, into each package
+            // depending on v
+            long hash = hash(v);
+            int register = (int) (hash >>> (64 - precision));
+            byte rank = (byte) Math.min(64 - precision + 1,
+                Long.numberOfLeadingZeros(hash << precision) + 1);
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                int w = targets[i];
+                byte[] into = sketches[w];
+                if (into == null) {
+                    into = free.isEmpty() ? new byte[m]
+                        : free.remove(free.size() - 1);
+                    sketches[w] = into;
+                }
+                if (sketch != null) {
+                    for (int k = 0; k < m; k++) {
+                        if (sketch[k] > into[k]) into[k] = sketch[k];
+                    }
+                }
+                if (rank > into[register]) into[register] = rank;
+                if (--numDepends[w] == 0) queue[tail++] = w;
+            }
+            // v's sketch is no longer needed, keep it for reuse
+            if (sketch != null) {
+                Arrays.fill(sketch, (byte) 0);
+                free.add(sketch);
+            }
+        }
+        if (tail != n) {
+            throw new IllegalArgumentException("graph has a cycle");
+        }
+    }
+
+    /**
+     * Returns the estimated number of transitive dependencies of a vertex
+     * @param id vertex id
+     * @return estimated number of packages the vertex depends on
+     */
+    public double estimateOf(int id) {
+        return estimates[id];
+    }
+
+    /**
+     * Returns the relative standard error of the estimates
+     */
+    public double error() {
+        return error;
+    }
+
+    /**
+     * Returns the k packages with the largest estimates
+     * @param k most packages to return
+     * @return estimates, largest first and ties by package name
+     */
+    public List<Estimate> top(int k) {
+        // The k largest so far, the smallest on top
+        PriorityQueue<Integer> top = new PriorityQueue<>((a, b) ->
+            estimates[a] != estimates[b]
+                ? Double.compare(estimates[a], estimates[b])
+                : graph.nameOf(b).compareTo(graph.nameOf(a)));
+        for (int v = 0; v < estimates.length && k > 0; v++) {
+            top.add(v);
+            if (top.size() > k) top.poll();
+        }
+        List<Estimate> largest = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            int v = top.poll();
+            largest.add(new Estimate(graph.nameOf(v), estimates[v], error));
+        }
+        Collections.reverse(largest);
+        return largest;
+    }
+
+    ////////////////////////////////////////////////////////////////////////
+    /*Private methods*/
+    /**
+     * Estimated number of ids added to a sketch
+     */
+    private static double estimate(byte[] sketch) {
+        int m = sketch.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : sketch) {
+            sum += Math.scalb(1.0, -register);
+            if (register == 0) zeros++;
+        }
+        double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709
+            : 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        // Few ids, count the empty registers instead
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return estimate;
+    }
+
+    /**
+     * 64 bit hash of a vertex id, the finalizer of SplitMix64
+     */
+    private static long hash(int id) {
+        long z = (id + 1L) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,218 @@
+package directedgraph;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Filename:   FrozenGraph.java
+ * Project:    p4
+ * Authors:    Sam Peaslee
+ *
+ * Immutable, compact copy of a directed graph.
+ *
+ * The successors are kept in a compacted CompactGraph and the predecessors
+ * in a second pair of CSR arrays, both in the same order as the lists of
+ * the graph that was frozen. Nothing changes after the constructor, so
+ * any number of threads can read a FrozenGraph with no locking while the
+ * graph it was made from keeps changing. Every method that would change
+ * the graph throws UnsupportedOperationException, and every set and list
+ * returned is read-only.
+ */
+public class FrozenGraph implements GraphADT {
+
+    // Vertices and successors, compacted and never changed again
+    private final CompactGraph compact;
+    // Predecessors of vertex id are predecessors[predecessorOffsets[id]]
+    // up to predecessors[predecessorOffsets[id + 1] - 1]
+    private final int[] predecessorOffsets;
+    private final int[] predecessors;
+
+    /**
+     * Freezes a graph, vertex ids follow the given order
+     * @param graph graph to copy
+     * @param order every vertex of graph, once
+     */
+    FrozenGraph(Graph graph, Collection<String> order) {
+        compact = new CompactGraph(order.size(), graph.size());
+        for (String v : order) {
+            compact.addVertex(v);
+        }
+        for (String v : order) {
+            for (String adj : graph.getAdjacentVerticesOf(v)) {
+                compact.addEdge(v, adj);
+            }
+        }
+        compact.compact();
+        int n = compact.order();
+        predecessorOffsets = new int[n + 1];
+        predecessors = new int[compact.size()];
+        for (int id = 0; id < n; id++) {
+            predecessorOffsets[id + 1] = predecessorOffsets[id]
+                + graph.getPredecessorsOf(compact.nameOf(id)).size();
+        }
+        for (int id = 0; id < n; id++) {
+            int at = predecessorOffsets[id];
+            for (String pred : graph.getPredecessorsOf(compact.nameOf(id))) {
+                predecessors[at++] = compact.idOf(pred);
+            }
+        }
+        // Fill the in-degree cache now, later it is only read
+        compact.inDegrees();
+    }
+
+    /**
+     * Freezes a compact graph, which must not be changed afterwards
+     * @param compact graph to freeze
+     * @param predecessors predecessors of every vertex, vertex by vertex
+     * in order of their ids, as many for each vertex as its in-degree in
+     * compact. Each vertex keeps its predecessors in the given order, the
+     * one of the graph compact was made from.
+     */
+    FrozenGraph(CompactGraph compact, int[] predecessors) {
+        compact.compact();
+        this.compact = compact;
+        int n = compact.order();
+        int[] in = compact.inDegrees();
+        predecessorOffsets = new int[n + 1];
+        for (int id = 0; id < n; id++) {
+            predecessorOffsets[id + 1] = predecessorOffsets[id] + in[id];
+        }
+        this.predecessors = predecessors;
+    }
+
+    public void addVertex(String vertex) {
+        throw new UnsupportedOperationException("graph is frozen");
+    }
+
+    public void removeVertex(String vertex) {
+        throw new UnsupportedOperationException("graph is frozen");
+    }
+
+    public void addEdge(String vertex1, String vertex2) {
+        throw new UnsupportedOperationException("graph is frozen");
+    }
+
+    public void removeEdge(String vertex1, String vertex2) {
+        throw new UnsupportedOperationException("graph is frozen");
+    }
+
+    /**
+     * Returns a read-only Set that contains all the vertices
+     */
+    public Set<String> getAllVertices() {
+        return compact.getAllVertices();
+    }
+
+    /**
+     * Get all the neighbor (adjacent) vertices of a vertex
+     * @return read-only list of the successors of vertex, empty if vertex
+     * is not in the graph
+     */
+    public List<String> getAdjacentVerticesOf(String vertex) {
+        int id = compact.idOf(vertex);
+        if (id < 0) return Collections.emptyList();
+        int[] offsets = compact.offsets();
+        return new Names(compact.targets(), offsets[id], offsets[id + 1]);
+    }
+
+    /**
+     * Get all the predecessor vertices of a vertex, the vertices that
+     * have an edge to it. The opposite of getAdjacentVerticesOf.
+     * @param vertex the specified vertex
+     * @return read-only list of the predecessors of vertex, empty if
+     * vertex is not in the graph
+     */
+    public List<String> getPredecessorsOf(String vertex) {
+        int id = compact.idOf(vertex);
+        if (id < 0) return Collections.emptyList();
+        return new Names(predecessors, predecessorOffsets[id],
+            predecessorOffsets[id + 1]);
+    }
+
+    /**
+     * Returns the number of edges in this graph.
+     */
+    public int size() {
+        return compact.size();
+    }
+
+    /**
+     * Returns the number of vertices in this graph.
+     */
+    public int order() {
+        return compact.order();
+    }
+
+    /**
+     * Returns the id of a vertex, ids run from 0 to order() - 1
+     * @param vertex name of the vertex
+     * @return id of the vertex or -1 if it is not in the graph
+     */
+    public int idOf(String vertex) {
+        return compact.idOf(vertex);
+    }
+
+    /**
+     * Returns the name of the vertex with the given id
+     * @param id vertex id
+     * @return name of the vertex
+     */
+    public String nameOf(int id) {
+        return compact.nameOf(id);
+    }
+
+    /**
+     * Returns the successors of every vertex as CSR arrays, see
+     * CompactGraph.offsets(). Must not be changed.
+     */
+    CompactGraph compact() {
+        return compact;
+    }
+
+    /**
+     * Returns the predecessor CSR offsets, the predecessors of vertex id
+     * are predecessors()[predecessorOffsets()[id]] up to
+     * predecessors()[predecessorOffsets()[id + 1] - 1]. Must not be changed.
+     */
+    int[] predecessorOffsets() {
+        return predecessorOffsets;
+    }
+
+    /**
+     * Returns the predecessor CSR targets, see predecessorOffsets().
+     * Must not be changed.
+     */
+    int[] predecessors() {
+        return predecessors;
+    }
+
+    /**
+     * Read-only list of the names of a slice of vertex ids
+     */
+    private class Names extends AbstractList<String> {
+        private final int[] ids;
+        private final int from;
+        private final int to;
+
+        Names(int[] ids, int from, int to) {
+            this.ids = ids;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public String get(int i) {
+            if (i < 0 || i >= to - from)
+                throw new IndexOutOfBoundsException(i);
+            return compact.nameOf(ids[from + i]);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+}
@@ -1,6 +1,9 @@
+package directedgraph;
+
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
@@ -26,6 +29,9 @@ class GraphNode<String> {
         String data;// Data associated with a GraphNode
         // Successors of GraphNode
         ArrayList<String> succesors;
+        // Predecessors of GraphNode, kept in sync with the successors
+        // of the other GraphNodes
+        ArrayList<String> predecessors;
     
 
         /**
@@ -34,6 +40,7 @@ class GraphNode<String> {
          */
         GraphNode() {
             succesors = new ArrayList<String>();
+            predecessors = new ArrayList<String>();
  
 
         }
@@ -45,6 +52,7 @@ class GraphNode<String> {
         GraphNode(String data) {
             this.data = data;
             succesors = new ArrayList<String>();
+            predecessors = new ArrayList<String>();
         }
 
         /**
@@ -69,13 +77,29 @@ class GraphNode<String> {
         private void addSuccessor(String neighboor) {
             succesors.add(neighboor);
         }
+
+        /**
+         * Retrieves the ArrayList of predecessors for the GraphNode
+         * @return predecessors
+         */
+        private ArrayList<String> getPredecessors() {
+            return predecessors;
+        }
+
+        /**
+         * Adds a predecessor to the GraphNodes predecessors ArrayList
+         * @param neighboor
+         */
+        private void addPredecessor(String neighboor) {
+            predecessors.add(neighboor);
+        }
     }//End of inner GraphNode class
     
-    //List of GraphNodes in the graph
-    ArrayList<GraphNode<String>> vertices  =
-        new ArrayList<GraphNode<String>>(0);
     // Set to hold all vertex in the graph
     Set<String> allVertices =  new HashSet<>();
+    // GraphNodes in the graph indexed by vertex name, in the order they
+    // were added, so a vertex can be found without walking all of them
+    LinkedHashMap<String, GraphNode<String>> index = new LinkedHashMap<>();
     int numVertices = 0;//Number of Vertices
     int numEdges = 0;// Number of edges 
 
@@ -86,6 +110,21 @@ class GraphNode<String> {
 
     }
     
+    /*
+     * Graph with the vertices and edges of a frozen graph, each list of
+     * successors and predecessors in the same order as in the frozen graph
+     */
+    Graph(FrozenGraph frozen) {
+        for(int id = 0; id < frozen.order(); id++) {
+            addVertex(frozen.nameOf(id));
+        }
+        for(GraphNode<String> v: index.values()) {
+            v.getSuccessors().addAll(frozen.getAdjacentVerticesOf(v.getData()));
+            v.getPredecessors().addAll(frozen.getPredecessorsOf(v.getData()));
+        }
+        numEdges = frozen.size();
+    }
+    
     /**
      * Add new vertex to the graph.
      *
@@ -105,8 +144,8 @@ class GraphNode<String> {
         if(search(vertex) != null) return;
         //Vertex is not in graph so add it
         GraphNode<String> v = new GraphNode<>(vertex);
-        vertices.add(v);
         allVertices.add(vertex);
+        index.put(vertex, v);
         numVertices++;
         
     }
@@ -129,26 +168,25 @@ class GraphNode<String> {
         GraphNode<String> vRemoved = search(vertex);
         //Vertex is not in the graph do not remove anything
         if(vRemoved == null) return;
-        //Go through list of edges for each vertex in graph
-        //If vertex has a edge with vRemoved, removed the edge from 
-        //the graph
-        List<String> n;
-        for(GraphNode<String> v: vertices) {
-            n = v.getSuccessors();
-            if(n.contains(vertex)) {
-                n.remove(vertex);
+        //Go through the predecessors of vRemoved and remove their edge
+        //to vRemoved from the graph
+        for(String pred: vRemoved.getPredecessors()) {
+            numEdges--;
+            if(!pred.equals(vertex)) {
+                search(pred).getSuccessors().remove(vertex);
+            }
+        }
+        //Go through the successors of vRemoved and remove the edge
+        //from vRemoved, an edge to itself was already counted above
+        for(String adj: vRemoved.getSuccessors()){
+            if(!adj.equals(vertex)) {
                 numEdges--;
+                search(adj).getPredecessors().remove(vertex);
             }
         }
-       // Need to decrease the number of edges by one for each
-       // outgoing edge of B
-       for(String adj: vRemoved.getSuccessors()){
-           numEdges--;
-           
-       }
         //Remove vertex from graph 
-        vertices.remove(vRemoved);
         allVertices.remove(vertex);
+        index.remove(vertex);
         numVertices--;
   
     }
@@ -179,15 +217,18 @@ class GraphNode<String> {
             addVertex(vertex2);
             v2 = search(vertex2);
         }
-        //Iterate through adjacent nodes for v1
+        //The edge is in both the successors of v1 and the predecessors of
+        //v2, check the shorter list so adding edges to a package many 
+        //others depend on does not get slower and slower
         //If v2 is already an adjacent node the do not add new edge
-       for(String n: v1.getSuccessors()){ 
-           if(n.equals(vertex2)) {
-               return;
-           }
-       }
+        if(v1.getSuccessors().size() <= v2.getPredecessors().size()) {
+            if(v1.getSuccessors().contains(vertex2)) return;
+        }else {
+            if(v2.getPredecessors().contains(vertex1)) return;
+        }
        //No edge exist between v1 and v2 so new edge can be created
        v1.addSuccessor(vertex2);
+       v2.addPredecessor(vertex1);
        numEdges++;
        
     }
@@ -214,6 +255,7 @@ class GraphNode<String> {
         List<String> neighbors = v1.getSuccessors();
         if(neighbors.contains(vertex2)) {
             neighbors.remove(vertex2);
+            v2.getPredecessors().remove(vertex1);
             numEdges--;
         }
         
@@ -233,9 +275,10 @@ class GraphNode<String> {
      */
     public List<String> getAdjacentVerticesOf(String vertex) {
         
-        if(search(vertex) != null) {
+        GraphNode<String> v = search(vertex);
+        if(v != null) {
             //Vertex is in the graph, return the list of its adjacent vertexes
-            return search(vertex).getSuccessors();
+            return v.getSuccessors();
         }else {
             //Vertex is not in the graph, return an empty list
             return new ArrayList<String>();
@@ -244,6 +287,37 @@ class GraphNode<String> {
     
     }
     
+    /**
+     * Get all the predecessor vertices of a vertex, the vertices that 
+     * have an edge to it. The opposite of getAdjacentVerticesOf.
+     * 
+     * For the example graph, A->[B, C], D->[A, B] 
+     *     getPredecessorsOf(B) should return [A, D]. 
+     *
+     * @param vertex the specified vertex
+     * @return a List<String> of all the predecessors of the vertex, 
+     * empty if the vertex is not in the graph
+     */
+    public List<String> getPredecessorsOf(String vertex) {
+        GraphNode<String> v = search(vertex);
+        if(v != null) {
+            //Vertex is in the graph, return the list of its predecessors
+            return v.getPredecessors();
+        }else {
+            //Vertex is not in the graph, return an empty list
+            return new ArrayList<String>();
+        }
+    }
+    
+    /**
+     * Makes an immutable, compact copy of the graph that any number of
+     * threads can read with no locking while this graph keeps changing
+     * @return frozen copy of the graph
+     */
+    public FrozenGraph freeze() {
+        return new FrozenGraph(this, new ArrayList<>(index.keySet()));
+    }
+    
     /**
      * Returns the number of edges in this graph.
      */
@@ -263,16 +337,13 @@ class GraphNode<String> {
     /**
      * Searches for a specified vertex in the graph and returns the 
      * GraphNode if the vertex is in the graph, otherwise return null
+     * Uses the name index so the lookup takes constant time
      * @param data
      * @return GraphNode or null
      */
     private GraphNode<String> search(String data) {
-        for(int i = 0; i < vertices.size(); i++) {
-            if(vertices.get(i).getData().equals(data)) {
-                return vertices.get(i);
-            }
-        }
-        return null;
+        if(data == null) return null;
+        return index.get(data);
     }
     /**
      * Prints Graph
@@ -280,12 +351,11 @@ class GraphNode<String> {
     private void printGraph() {
         System.out.println("Printing Graph......");
         System.out.println("List of All Vertexes: ");
-        for (int i = 0; i < numVertices; i++) {
-            System.out.print(vertices.get(i).getData() + ", ");
+        for (GraphNode<String> currV: index.values()) {
+            System.out.print(currV.getData() + ", ");
         }
         System.out.println();
-        for (int i = 0; i < numVertices; i++) {
-            GraphNode<String> currV = vertices.get(i);
+        for (GraphNode<String> currV: index.values()) {
             ArrayList<String> neighbors = currV.getSuccessors();
             System.out.print(
                 "Vertex: " + currV.getData()+ 
@@ -1,3 +1,5 @@
+package directedgraph;
+
 import java.util.List;
 import java.util.Set;
 
@@ -0,0 +1,26 @@
+package directedgraph;
+
+/**
+ * Thrown by InstallSchedule.install() when a package could not be
+ * installed, the cause is what the installer threw
+ */
+@SuppressWarnings("serial")
+public class InstallException extends Exception {
+
+    // Name of the package that could not be installed
+    private String pkg;
+
+    public InstallException(String pkg, Throwable cause) {
+        super(pkg, cause);
+        this.pkg = pkg;
+    }
+
+    /**
+     * Returns the name of the package that could not be installed
+     * @return name of the package, null if the install failed outside of
+     * any package
+     */
+    public String getPackage() {
+        return pkg;
+    }
+}
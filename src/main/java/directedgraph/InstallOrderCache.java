@@ -0,0 +1,245 @@
+package directedgraph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Filename:   InstallOrderCache.java
+ * Project:    p4
+ * Authors:    Sam Peaslee
+ *
+ * Bounded cache of the installation orders of packages, and of the cycles
+ * found instead when a package can not be installed.
+ *
+ * The cache is bounded by the total number of packages in the cached
+ * orders and cycles, not by the number of entries, so a few huge orders
+ * can not use up the memory of many small ones. When it is full the
+ * least recently used entries are evicted.
+ *
+ * An installation order only changes when the dependencies of a package
+ * in it change, so the cache keeps, for every package, the cached orders
+ * it is in. Changing the dependencies of a package drops exactly those
+ * orders. Which cycle a package runs into can change with any edge on
+ * the way to it, so every cached cycle is dropped on any change.
+ *
+ * Every method locks the cache, lookups and changes are short, so any
+ * number of threads can share one cache. That does not make
+ * PackageManager.getInstallationOrder safe to call from many threads, only
+ * the getInstallationOrder of a copy made by PackageManager.freeze() is.
+ */
+public class InstallOrderCache {
+
+    // Default most packages in all cached orders and cycles together
+    public static final int DEFAULT_CAPACITY = 1 << 18;
+
+    /**
+     * A cached installation order, or the cycle found instead
+     */
+    static class Entry {
+        // Installation order, null if there is a cycle
+        final List<String> order;
+        // Packages on the cycle, null if there is an order
+        final List<String> cycle;
+
+        Entry(List<String> order, List<String> cycle) {
+            this.order = order;
+            this.cycle = cycle;
+        }
+
+        /**
+         * Number of packages the entry holds
+         */
+        int weight() {
+            return order != null ? order.size() : cycle.size();
+        }
+    }
+
+    // Most packages in all entries together
+    private final int capacity;
+    // Entries by package, least recently used first
+    private final LinkedHashMap<String, Entry> entries =
+        new LinkedHashMap<>(16, 0.75f, true);
+    // For each package, the packages whose cached order holds it
+    private final HashMap<String, HashSet<String>> users = new HashMap<>();
+    // Packages whose entry is a cycle
+    private final HashSet<String> cycles = new HashSet<>();
+    // Packages in all entries together
+    private long weight;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Creates an empty cache
+     * @param capacity most packages in all cached orders and cycles
+     * together, 0 turns the cache off
+     */
+    public InstallOrderCache(int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("capacity " + capacity);
+        this.capacity = capacity;
+    }
+
+    /**
+     * Looks up the entry of a package, counting a hit or a miss
+     * @param pkg package to look up
+     * @return cached entry, or null if there is none
+     */
+    synchronized Entry get(String pkg) {
+        Entry entry = entries.get(pkg);
+        if (entry == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return entry;
+    }
+
+    /**
+     * Caches the installation order of a package
+     * @param pkg package the order is for
+     * @param order installation order, not changed afterwards
+     */
+    synchronized void putOrder(String pkg, List<String> order) {
+        if (!makeRoom(pkg, order.size())) return;
+        entries.put(pkg, new Entry(Collections.unmodifiableList(order), null));
+        for (String dependency : order) {
+            users.computeIfAbsent(dependency, k -> new HashSet<>()).add(pkg);
+        }
+        weight += order.size();
+    }
+
+    /**
+     * Caches the cycle found looking for the installation order of a
+     * package
+     * @param pkg package that could not be installed
+     * @param cycle packages on the cycle
+     */
+    synchronized void putCycle(String pkg, List<String> cycle) {
+        if (!makeRoom(pkg, cycle.size())) return;
+        entries.put(pkg, new Entry(null,
+            Collections.unmodifiableList(new ArrayList<>(cycle))));
+        cycles.add(pkg);
+        weight += cycle.size();
+    }
+
+    /**
+     * Drops every entry that depends on the dependencies of a package,
+     * must be called whenever they change or the package is removed
+     * @param pkg package whose dependencies changed
+     */
+    synchronized void invalidate(String pkg) {
+        HashSet<String> using = users.get(pkg);
+        if (using != null) {
+            for (String user : using.toArray(new String[0])) {
+                remove(user);
+                invalidations.increment();
+            }
+        }
+        for (String user : cycles.toArray(new String[0])) {
+            remove(user);
+            invalidations.increment();
+        }
+    }
+
+    /**
+     * Drops every entry, must be called whenever the graph is built again
+     */
+    public synchronized void clear() {
+        entries.clear();
+        users.clear();
+        cycles.clear();
+        weight = 0;
+    }
+
+    /**
+     * Returns the most packages in all entries together
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of cached packages
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of packages in all entries together
+     */
+    public synchronized long weight() {
+        return weight;
+    }
+
+    /**
+     * Returns the number of lookups that found an entry
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups that found no entry
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of entries dropped to make room for others
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the number of entries dropped because the graph changed
+     */
+    public long invalidations() {
+        return invalidations.sum();
+    }
+
+    ////////////////////////////////////////////////////////////////////////
+    /*Private methods*/
+    /**
+     * Drops the old entry of pkg and evicts least recently used entries
+     * until an entry of the given weight fits
+     * @return false if the entry can never fit
+     */
+    private boolean makeRoom(String pkg, int size) {
+        if (size > capacity) return false;
+        remove(pkg);
+        while (weight + size > capacity) {
+            // The first entry is the least recently used
+            remove(entries.keySet().iterator().next());
+            evictions.increment();
+        }
+        return true;
+    }
+
+    /**
+     * Drops the entry of a package if there is one
+     */
+    private void remove(String pkg) {
+        Entry entry = entries.remove(pkg);
+        if (entry == null) return;
+        weight -= entry.weight();
+        if (entry.cycle != null) {
+            cycles.remove(pkg);
+            return;
+        }
+        for (String dependency : entry.order) {
+            HashSet<String> using = users.get(dependency);
+            using.remove(pkg);
+            if (using.isEmpty()) users.remove(dependency);
+        }
+    }
+}
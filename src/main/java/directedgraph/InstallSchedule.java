@@ -0,0 +1,287 @@
+package directedgraph;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+
+/**
+ * Filename:   InstallSchedule.java
+ * Project:    p4
+ * Authors:    Sam Peaslee
+ *
+ * Schedule for installing every package of an acyclic dependency graph,
+ * where an edge u -> v means v depends on u, with as many packages
+ * installed at once as their dependencies allow.
+ *
+ * The packages are split into layers by a level by level Kahn's
+ * algorithm. Layer 0 holds the packages with no dependencies, and each
+ * later layer the packages whose dependencies are all in earlier layers,
+ * so the packages of one layer can be installed together. The height of a
+ * package is the number of packages on the longest chain from it to a
+ * package nothing depends on, itself included. The highest packages are
+ * on the critical path, which bounds the time of the whole install.
+ *
+ * install() does not wait for a layer to finish. Each package is handed to
+ * an executor as soon as its last dependency is installed, highest
+ * package first, so with enough threads the install takes about as long
+ * as its critical path instead of the sum of all packages.
+ *
+ * Nothing changes after the constructor, so a schedule can be used by
+ * many threads and installed any number of times.
+ */
+public class InstallSchedule {
+
+    /**
+     * Installs a single package, called by install() from the threads of
+     * its executor
+     */
+    public interface Installer {
+        /**
+         * Installs a package, its dependencies are already installed
+         * @param pkg name of the package
+         * @throws Exception if the package could not be installed, no
+         * package depending on it is installed
+         */
+        void install(String pkg) throws Exception;
+    }
+
+    // Packages and their successors, must not change
+    private final CompactGraph graph;
+    // Vertex ids layer by layer, layer k is order[layers[k]] up to
+    // order[layers[k + 1] - 1]
+    private final int[] order;
+    private final int[] layers;
+    // Height of each vertex id
+    private final int[] heights;
+
+    /**
+     * Schedules every vertex of a graph
+     * @param graph acyclic graph, an edge u -> v means v depends on u,
+     * must not change afterwards
+     * @throws IllegalArgumentException if the graph has a cycle
+     */
+    InstallSchedule(CompactGraph graph) {
+        this.graph = graph;
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int n = graph.order();
+        int[] numDepends = graph.inDegrees();
+        order = new int[n];
+        int tail = 0;
+        for (int v = 0; v < n; v++) {
+            if (numDepends[v] == 0) order[tail++] = v;
+        }
+        // Each pass takes the whole layer found by the pass before, the
+        // packages it frees make up the next layer
+        int[] starts = new int[n + 1];
+        int count = 0;
+        int head = 0;
+        while (head < tail) {
+            starts[count++] = head;
+            int end = tail;
+            for (; head < end; head++) {
+                int v = order[head];
+                for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                    if (--numDepends[targets[i]] == 0) {
+                        order[tail++] = targets[i];
+                    }
+                }
+            }
+        }
+        if (tail != n) {
+            throw new IllegalArgumentException("graph has a cycle");
+        }
+        starts[count] = n;
+        layers = Arrays.copyOf(starts, count + 1);
+        // The successors of a vertex come after it, so going backwards
+        // their heights are known
+        heights = new int[n];
+        for (int k = n - 1; k >= 0; k--) {
+            int v = order[k];
+            int height = 0;
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                height = Math.max(height, heights[targets[i]]);
+            }
+            heights[v] = height + 1;
+        }
+    }
+
+    /**
+     * Returns the number of layers, the number of packages on the
+     * longest chain of dependencies
+     */
+    public int layerCount() {
+        return layers.length - 1;
+    }
+
+    /**
+     * Returns the packages of a layer, their dependencies are all in
+     * earlier layers
+     * @param layer index of the layer, from 0 to layerCount() - 1
+     * @return read-only list of the packages of the layer
+     */
+    public List<String> layer(int layer) {
+        int from = layers[layer];
+        int to = layers[layer + 1];
+        return new AbstractList<String>() {
+            @Override
+            public String get(int i) {
+                if (i < 0 || i >= to - from)
+                    throw new IndexOutOfBoundsException(i);
+                return graph.nameOf(order[from + i]);
+            }
+
+            @Override
+            public int size() {
+                return to - from;
+            }
+        };
+    }
+
+    /**
+     * Returns every layer, see layer()
+     * @return read-only list of read-only layers
+     */
+    public List<List<String>> layers() {
+        return new AbstractList<List<String>>() {
+            @Override
+            public List<String> get(int i) {
+                if (i < 0 || i >= layerCount())
+                    throw new IndexOutOfBoundsException(i);
+                return layer(i);
+            }
+
+            @Override
+            public int size() {
+                return layerCount();
+            }
+        };
+    }
+
+    /**
+     * Returns the height of a package, the number of packages on the
+     * longest chain from it to a package nothing depends on
+     * @param pkg name of the package
+     * @return height of the package, 0 if it is not scheduled
+     */
+    public int heightOf(String pkg) {
+        int id = graph.idOf(pkg);
+        return id < 0 ? 0 : heights[id];
+    }
+
+    /**
+     * Returns the packages and their successors, must not be changed
+     */
+    CompactGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Returns every vertex id layer by layer, a topological order of
+     * graph(). Must not be changed.
+     */
+    int[] order() {
+        return order;
+    }
+
+    /**
+     * Returns where each layer starts in order(), layer k is
+     * order()[layerOffsets()[k]] up to order()[layerOffsets()[k + 1] - 1].
+     * Must not be changed.
+     */
+    int[] layerOffsets() {
+        return layers;
+    }
+
+    /**
+     * Installs every package, each one after all of its dependencies.
+     *
+     * A package is handed to executor as soon as its dependencies are
+     * installed, with at most parallelism packages installing at once.
+     * When more packages are ready than can run, the highest one, the one
+     * with the longest chain of packages waiting on it, goes first. Any
+     * executor works, a fixed thread pool with parallelism threads or one
+     * virtual thread per task.
+     *
+     * If a package fails no new package is started, the ones already
+     * installing are waited for and the first failure is thrown. An Error
+     * thrown by an install is treated the same way and rethrown as it is.
+     *
+     * @param installer installs one package, called from the threads of
+     * executor
+     * @param executor runs the installs
+     * @param parallelism most packages installing at once, at least 1
+     * @throws InstallException if a package could not be installed
+     * @throws InterruptedException if the thread was interrupted while
+     * waiting, packages already installing are not stopped
+     */
+    public void install(Installer installer, Executor executor,
+        int parallelism) throws InstallException, InterruptedException {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism < 1");
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int[] numDepends = graph.inDegrees();
+        // Packages whose dependencies are installed, highest first, the
+        // smallest id first between equal heights
+        PriorityQueue<Integer> ready = new PriorityQueue<>((a, b) ->
+            heights[a] != heights[b] ? heights[b] - heights[a] : a - b);
+        for (int v = 0; v < numDepends.length; v++) {
+            if (numDepends[v] == 0) ready.add(v);
+        }
+        ExecutorCompletionService<Integer> installed =
+            new ExecutorCompletionService<>(executor);
+        int running = 0;
+        // First install that failed, an InstallException or an Error
+        Throwable failure = null;
+        while (true) {
+            // Start as many ready packages as there is room for
+            while (failure == null && running < parallelism
+                && !ready.isEmpty()) {
+                int id = ready.poll();
+                String pkg = graph.nameOf(id);
+                installed.submit(() -> {
+                    try {
+                        installer.install(pkg);
+                    } catch (Exception e) {
+                        throw new InstallException(pkg, e);
+                    }
+                    return id;
+                });
+                running++;
+            }
+            if (running == 0) break;
+            Future<Integer> next = installed.take();
+            running--;
+            int id;
+            try {
+                id = next.get();
+            } catch (ExecutionException e) {
+                if (failure == null) failure = installFailure(e);
+                continue;
+            }
+            // The packages waiting only on this one are ready
+            for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+                if (--numDepends[targets[i]] == 0) ready.add(targets[i]);
+            }
+        }
+        if (failure instanceof Error) throw (Error) failure;
+        if (failure != null) throw (InstallException) failure;
+    }
+
+    /**
+     * Finds the InstallException or Error of a failed install, wrapping 
+     * anything else the executor threw in an InstallException
+     */
+    private static Throwable installFailure(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof InstallException || cause instanceof Error)
+            return cause;
+        return new InstallException(null, cause);
+    }
+}
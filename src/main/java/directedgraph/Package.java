@@ -1,3 +1,5 @@
+package directedgraph;
+
 /**
  * Filename:   Package.java
  * Project:    p4
@@ -0,0 +1,373 @@
+package directedgraph;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Filename:   PackageGenerator.java
+ * Project:    p4
+ * Authors:    Sam Peaslee
+ *
+ * Generates synthetic package dependency json files for tests and
+ * benchmarks.
+ *
+ * A graph is made as the dependencies of each package, package i is named
+ * "p" + i and only depends on packages with a smaller number, so every
+ * generated graph is acyclic until cycles are injected. The same shape,
+ * size and seed always give the same graph.
+ *
+ * Shapes:
+ *   chain    - each package depends on the one before it
+ *   fan      - every package depends on p0, and the last package depends
+ *              on every other package
+ *   random   - each package depends on up to 4 random earlier packages
+ *   powerlaw - preferential attachment, packages that many others depend
+ *              on are more likely to be picked again, like a real registry
+ *   diamond  - layers of 4 packages, each depending on 2 packages of the
+ *              layer before, so most dependencies are reached many ways
+ *
+ * Usage: java directedgraph.PackageGenerator shape packages seed
+ *        [cycles [file]]
+ * The json is written to file, or to standard out. Each injected cycle is
+ * printed to standard error.
+ */
+public class PackageGenerator {
+
+    // Shapes that can be generated
+    public static final List<String> SHAPES =
+        Arrays.asList("chain", "fan", "random", "powerlaw", "diamond");
+
+    /**
+     * Generates a graph of the given shape
+     * @param shape one of SHAPES
+     * @param n number of packages
+     * @param seed random seed
+     * @return dependencies of each package
+     * @throws IllegalArgumentException if shape is unknown
+     */
+    public static String[][] generate(String shape, int n, long seed) {
+        switch (shape) {
+            case "chain": return chain(n);
+            case "fan": return fan(n);
+            case "random": return random(n, 4, seed);
+            case "powerlaw": return powerLaw(n, seed);
+            case "diamond": return diamond(n, seed);
+            default: throw new IllegalArgumentException("unknown shape " + shape);
+        }
+    }
+
+    /**
+     * Each package depends on the one before it
+     * @param n number of packages
+     * @return dependencies of each package
+     */
+    public static String[][] chain(int n) {
+        String[][] depends = new String[n][];
+        for (int i = 0; i < n; i++) {
+            depends[i] = i == 0 ? new String[0] : new String[] {name(i - 1)};
+        }
+        return depends;
+    }
+
+    /**
+     * Packages 1 to n - 2 depend on p0, and p(n - 1) depends on all of them
+     * @param n number of packages
+     * @return dependencies of each package
+     */
+    public static String[][] fan(int n) {
+        String[][] depends = new String[n][];
+        for (int i = 0; i < n - 1; i++) {
+            depends[i] = i == 0 ? new String[0] : new String[] {name(0)};
+        }
+        if (n > 1) {
+            depends[n - 1] = new String[n - 2];
+            for (int i = 1; i < n - 1; i++) {
+                depends[n - 1][i - 1] = name(i);
+            }
+        }
+        return depends;
+    }
+
+    /**
+     * Each package depends on up to k distinct random earlier packages
+     * @param n number of packages
+     * @param k most dependencies of a package
+     * @param seed random seed
+     * @return dependencies of each package
+     */
+    public static String[][] random(int n, int k, long seed) {
+        Random random = new Random(seed);
+        String[][] depends = new String[n][];
+        for (int i = 0; i < n; i++) {
+            int count = Math.min(i, k);
+            int[] picked = new int[count];
+            int found = 0;
+            while (found < count) {
+                found = pick(picked, found, random.nextInt(i));
+            }
+            depends[i] = names(picked, found);
+        }
+        return depends;
+    }
+
+    /**
+     * Preferential attachment: each package depends on 1 to 8 earlier
+     * packages, picked with probability proportional to the number of
+     * packages already depending on them, plus one
+     * @param n number of packages
+     * @param seed random seed
+     * @return dependencies of each package
+     */
+    public static String[][] powerLaw(int n, long seed) {
+        Random random = new Random(seed);
+        String[][] depends = new String[n][];
+        // Every package once, plus once more for each package depending on
+        // it, picking a random entry picks packages by popularity
+        int[] pool = new int[n * 9];
+        int poolSize = 0;
+        for (int i = 0; i < n; i++) {
+            int count = Math.min(i, 1 + random.nextInt(8));
+            int[] picked = new int[count];
+            int found = 0;
+            // Popular packages are picked again and again, give up on the
+            // rest after a while
+            for (int attempt = 0; found < count && attempt < count * 20;
+                attempt++) {
+                found = pick(picked, found, pool[random.nextInt(poolSize)]);
+            }
+            depends[i] = names(picked, found);
+            for (int j = 0; j < found; j++) {
+                pool[poolSize++] = picked[j];
+            }
+            pool[poolSize++] = i;
+        }
+        return depends;
+    }
+
+    /**
+     * Layers of 4 packages, each package depends on 2 packages of the
+     * layer before it
+     * @param n number of packages
+     * @param seed random seed
+     * @return dependencies of each package
+     */
+    public static String[][] diamond(int n, long seed) {
+        final int width = 4;
+        Random random = new Random(seed);
+        String[][] depends = new String[n][];
+        for (int i = 0; i < n; i++) {
+            int layer = i / width;
+            if (layer == 0) {
+                depends[i] = new String[0];
+                continue;
+            }
+            int start = (layer - 1) * width;
+            int[] picked = new int[2];
+            int found = 0;
+            while (found < 2) {
+                found = pick(picked, found, start + random.nextInt(width));
+            }
+            depends[i] = names(picked, found);
+        }
+        return depends;
+    }
+
+    /**
+     * Injects cycles into a generated graph. A package with dependencies
+     * is picked at random, its first dependency is followed up to
+     * length - 1 times, and the package reached is made to depend on the
+     * picked package.
+     * @param depends dependencies of each package, changed in place
+     * @param count number of cycles to inject
+     * @param length most packages in each cycle, at least 2
+     * @param seed random seed
+     * @return the packages of each injected cycle, each package depends on
+     * the next one and the last one depends on the first
+     */
+    public static List<List<String>> injectCycles(String[][] depends,
+        int count, int length, long seed) {
+        Random random = new Random(seed);
+        List<List<String>> cycles = new ArrayList<>();
+        // Packages with no dependencies can not start a cycle, give up if
+        // there are not enough of the others
+        for (int attempt = 0; cycles.size() < count
+            && attempt < count * 100 && depends.length > 0; attempt++) {
+            int start = random.nextInt(depends.length);
+            if (depends[start].length == 0) {
+                continue;
+            }
+            List<String> cycle = new ArrayList<>();
+            cycle.add(name(start));
+            int at = start;
+            while (cycle.size() < length && depends[at].length > 0) {
+                at = idOf(depends[at][0]);
+                cycle.add(name(at));
+            }
+            String[] more = Arrays.copyOf(depends[at], depends[at].length + 1);
+            more[more.length - 1] = name(start);
+            depends[at] = more;
+            cycles.add(cycle);
+        }
+        return cycles;
+    }
+
+    /**
+     * Name of package i
+     * @param i number of the package
+     * @return name of the package
+     */
+    public static String name(int i) {
+        return "p" + i;
+    }
+
+    /**
+     * Writes a graph as a package json document
+     * @param depends dependencies of each package
+     * @param out where to write the json, not closed
+     * @throws IOException if out cannot be written
+     */
+    public static void writeJson(String[][] depends, Writer out)
+        throws IOException {
+        writeJson(depends, 0, depends.length, out);
+    }
+
+    /**
+     * Writes some of the packages of a graph as a package json document
+     * @param depends dependencies of each package
+     * @param from first package to write
+     * @param to package after the last package to write
+     * @param out where to write the json, not closed
+     * @throws IOException if out cannot be written
+     */
+    public static void writeJson(String[][] depends, int from, int to,
+        Writer out) throws IOException {
+        out.write("{\"packages\": [\n");
+        for (int i = from; i < to; i++) {
+            out.write("{\"name\": \"" + name(i) + "\", \"dependencies\": [");
+            for (int j = 0; j < depends[i].length; j++) {
+                out.write(j == 0 ? "\"" : ", \"");
+                out.write(depends[i][j]);
+                out.write("\"");
+            }
+            out.write(i == to - 1 ? "]}\n" : "]},\n");
+        }
+        out.write("]}\n");
+        out.flush();
+    }
+
+    /**
+     * Writes a graph as shards, json files each holding the next slice of
+     * the packages, named shard-0.json, shard-1.json and so on
+     * @param depends dependencies of each package
+     * @param count number of shards
+     * @param directory directory to write the shards in
+     * @return paths of the shards, in order
+     * @throws IOException if a shard cannot be written
+     */
+    public static List<String> writeShards(String[][] depends, int count,
+        Path directory) throws IOException {
+        List<String> shards = new ArrayList<>();
+        int per = (depends.length + count - 1) / count;
+        for (int i = 0; i < count; i++) {
+            Path shard = directory.resolve("shard-" + i + ".json");
+            try (BufferedWriter out = Files.newBufferedWriter(shard)) {
+                writeJson(depends, Math.min(depends.length, i * per),
+                    Math.min(depends.length, (i + 1) * per), out);
+            }
+            shards.add(shard.toString());
+        }
+        return shards;
+    }
+
+    /**
+     * Writes a graph to a package json file
+     * @param depends dependencies of each package
+     * @param file file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeJson(String[][] depends, Path file)
+        throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            writeJson(depends, out);
+        }
+    }
+
+    /**
+     * Writes a graph to a temporary package json file that is deleted
+     * when the JVM exits
+     * @param depends dependencies of each package
+     * @return path of the file
+     * @throws IOException if the file cannot be written
+     */
+    public static Path writeTempJson(String[][] depends) throws IOException {
+        Path file = Files.createTempFile("packages", ".json");
+        file.toFile().deleteOnExit();
+        writeJson(depends, file);
+        return file;
+    }
+
+    /**
+     * Adds candidate to the first found entries of picked if it is not
+     * already one of them
+     * @return the new number of picked entries
+     */
+    private static int pick(int[] picked, int found, int candidate) {
+        for (int j = 0; j < found; j++) {
+            if (picked[j] == candidate) {
+                return found;
+            }
+        }
+        picked[found] = candidate;
+        return found + 1;
+    }
+
+    /**
+     * Names of the first count packages in ids
+     */
+    private static String[] names(int[] ids, int count) {
+        String[] names = new String[count];
+        for (int j = 0; j < count; j++) {
+            names[j] = name(ids[j]);
+        }
+        return names;
+    }
+
+    /**
+     * Number of a generated package from its name
+     */
+    private static int idOf(String name) {
+        return Integer.parseInt(name.substring(1));
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("usage: PackageGenerator shape packages seed "
+                + "[cycles [file]]");
+            System.err.println("shapes: " + SHAPES);
+            System.exit(1);
+        }
+        long seed = Long.parseLong(args[2]);
+        String[][] depends =
+            generate(args[0], Integer.parseInt(args[1]), seed);
+        int cycles = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        for (List<String> cycle : injectCycles(depends, cycles, 4, seed)) {
+            System.err.println("cycle: " + String.join(" -> ", cycle)
+                + " -> " + cycle.get(0));
+        }
+        if (args.length > 4) {
+            writeJson(depends, Paths.get(args[4]));
+        } else {
+            writeJson(depends, new BufferedWriter(
+                new OutputStreamWriter(System.out)));
+        }
+    }
+}
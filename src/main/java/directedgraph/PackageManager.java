@@ -0,0 +1,1234 @@
+package directedgraph;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Stack;
+import java.util.TreeSet;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Filename:   PackageManager.java
+ * Project:    p4
+ * Authors:    Sam Peaslee
+ * 
+ * PackageManager is used to process json package dependency files
+ * and provide function that make that information available to other users.
+ * 
+ * Each package that depends upon other packages has its own
+ * entry in the json file.  
+ * 
+ * Package dependencies are important when building software, 
+ * as you must install packages in an order such that each package 
+ * is installed after all of the packages that it depends on 
+ * have been installed.
+ * 
+ * For example: package A depends upon package B,
+ * then package B must be installed before package A.
+ * 
+ * This program will read package information and 
+ * provide information about the packages that must be 
+ * installed before any given package can be installed.
+ * all of the packages in
+ * 
+ * You may add a main method, but we will test all methods with
+ * our own Test classes.
+ * 
+ * addDependency, addPackage, removeDependency and removePackage repair
+ * only the global installation order in place (see TopologicalOrder), so
+ * only getInstallationOrderForAllPackages avoids a full pass over the
+ * graph after a change. Each change drops the frozen copy of the graph and
+ * everything made from it. The next toInstall, dependsOn,
+ * getInstallSchedule, getPackageWithMaxDependencies, or getInstallationOrder
+ * missing the cache, makes them again from the whole graph in O(V + E).
+ * Make a batch of changes before querying, not one change before each
+ * query.
+ */
+
+public class PackageManager{
+
+    // Fewest packages for getPackageWithMaxDependencies to count them in
+    // parallel, smaller graphs are done faster on one thread
+    static final int PARALLEL_COUNT_THRESHOLD = 1 << 14;
+    // Directed Graph to store packages, null if this package manager
+    // was made by freeze(), or while the packages loaded from a snapshot
+    // are only kept in frozen, see graph()
+    private Graph graph;
+    // True if this package manager was made by freeze() and can not be
+    // changed
+    private final boolean readOnly;
+    // All packages in the graph, in the order they were first seen
+    private LinkedHashSet<String> allPackages;
+    // Frozen copy of graph used for queries, null when out of date
+    private FrozenGraph frozen;
+    // Strongly connected components of frozen, null when out of date
+    private StronglyConnectedComponents components;
+    // Reachability index of frozen, null when out of date
+    private ReachabilityIndex reachability;
+    // Layered install schedule of frozen, null when out of date. Made on
+    // first use, also by readers of a frozen copy, see getInstallSchedule
+    private volatile InstallSchedule schedule;
+    // Transitive dependencies of every package, null when out of date.
+    // Made on first use the same way as schedule
+    private volatile ClosureStore closures;
+    // Global installation order kept up to date as dependencies are added
+    // and removed, null until it is first needed or while graph has a cycle
+    private TopologicalOrder order;
+    // True if graph was found to have a cycle, so order can not be made
+    private boolean cyclic;
+    // Installation orders and cycles found by getInstallationOrder
+    private final InstallOrderCache cache;
+    /*
+     * Package Manager default no-argument constructor.
+     */
+    public PackageManager() {
+        this(InstallOrderCache.DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * Package Manager constructor with a bound on the installation orders
+     * kept by getInstallationOrder
+     * @param cacheCapacity most packages in all cached installation 
+     * orders together, 0 turns the cache off
+     */
+    public PackageManager(int cacheCapacity) {
+        graph = new Graph();
+        allPackages = new LinkedHashSet<>();
+        cache = new InstallOrderCache(cacheCapacity);
+        readOnly = false;
+    }
+    
+    /*
+     * Read-only package manager made by freeze()
+     */
+    private PackageManager(FrozenGraph frozen, 
+        StronglyConnectedComponents components, 
+        ReachabilityIndex reachability, Collection<String> allPackages,
+        int cacheCapacity) {
+        this.frozen = frozen;
+        readOnly = true;
+        cache = new InstallOrderCache(cacheCapacity);
+        this.components = components;
+        this.reachability = reachability;
+        this.allPackages = new LinkedHashSet<>(allPackages);
+    }
+
+    /**
+     * Takes in a file path for a json file and builds the
+     * package dependency graph from it. 
+     * 
+     * If the path is a directory, every .json file in it is read as a 
+     * shard of the packages, see constructGraph(List)
+     * 
+     * @param jsonFilepath the name of json data file with package dependency
+     * information
+     * @throws FileNotFoundException if file path is incorrect
+     * @throws IOException if the give file cannot be read
+     * @throws ParseException if the given json cannot be parsed, packages
+     * read before the error are already in the graph
+     */
+    public void constructGraph(String jsonFilepath)
+        throws FileNotFoundException, IOException, ParseException {
+        checkNotFrozen();
+        File file = new File(jsonFilepath);
+        if (file.isDirectory()) {
+            constructGraph(shardsIn(file));
+            return;
+        }
+        // Open the file, the packages are read and added to the graph one
+        // at a time so the whole json document is never held in memory
+        try (PackageReader reader = 
+            new PackageReader(new FileReader(jsonFilepath))) {
+            // The graph is about to change, drop everything computed from it
+            invalidate();
+            Package pkg;
+            while ((pkg = reader.next()) != null) { 
+                addPackage(pkg);
+            }
+        }
+        addUnlistedPackages();
+    }
+    
+    /**
+     * Builds the package dependency graph from many json files, each
+     * holding a shard of the packages.
+     * 
+     * The shards are parsed in parallel on the common ForkJoinPool, and
+     * added to the graph in the order they are listed, so the graph and 
+     * every order computed from it is the same as if the shards were read
+     * one after the other.
+     * 
+     * @param jsonFilepaths the names of the json shards
+     * @throws FileNotFoundException if a file path is incorrect
+     * @throws IOException if a shard cannot be read
+     * @throws ShardParseException if a shard cannot be parsed, tells which
+     * shard failed, the shards listed before it are already in the graph
+     */
+    public void constructGraph(List<String> jsonFilepaths)
+        throws FileNotFoundException, IOException, ParseException {
+        checkNotFrozen();
+        // The graph is about to change, drop everything computed from it
+        invalidate();
+        List<Future<List<Package>>> shards = new ArrayList<>();
+        for (String path : jsonFilepaths) {
+            shards.add(ForkJoinPool.commonPool().submit(() -> readShard(path)));
+        }
+        try {
+            // Add each shard as soon as it and the shards before it are
+            // parsed, while the shards after it are still being parsed
+            for (int i = 0; i < shards.size(); i++) {
+                for (Package pkg : shardResult(jsonFilepaths.get(i), 
+                    shards.get(i))) {
+                    addPackage(pkg);
+                }
+                // Let go of the parsed shard
+                shards.set(i, null);
+            }
+        } finally {
+            // A shard failed, there is no need to parse the rest
+            for (Future<List<Package>> shard : shards) {
+                if (shard != null) shard.cancel(true);
+            }
+        }
+        addUnlistedPackages();
+    }
+    
+    /**
+     * Builds the package dependency graph from a json file, using a binary
+     * snapshot of the graph to skip parsing the json when possible.
+     * 
+     * If the snapshot exists, is not corrupt, and was written for the 
+     * current version of the json file (same last modified time), the graph
+     * is loaded from it. Otherwise the json file is parsed, and a new 
+     * snapshot is written if this package manager had no packages before,
+     * so the snapshot holds the packages of the json file and nothing else.
+     * 
+     * A graph loaded from a snapshot answers queries as it was loaded, it
+     * is only copied into a graph that can be changed once the packages
+     * change.
+     * 
+     * @param jsonFilepath the name of json data file with package dependency
+     * information
+     * @param snapshotPath the name of the snapshot file
+     * @throws FileNotFoundException if the json file path is incorrect
+     * @throws IOException if either file cannot be read or written
+     * @throws ParseException if the given json cannot be parsed 
+     */
+    public void constructGraph(String jsonFilepath, String snapshotPath)
+        throws FileNotFoundException, IOException, ParseException {
+        checkNotFrozen();
+        File json = new File(jsonFilepath);
+        if (!json.isFile())
+            throw new FileNotFoundException(jsonFilepath);
+        long modified = json.lastModified();
+        FrozenGraph snapshot = PackageSnapshot.read(snapshotPath, modified);
+        if (snapshot != null) {
+            loadGraph(snapshot);
+        } else {
+            // Missing or out of date snapshot, parse the json and write a
+            // new snapshot for next time, unless packages read before
+            // would end up in it
+            boolean empty = allPackages.isEmpty();
+            constructGraph(jsonFilepath);
+            if (empty) PackageSnapshot.write(frozen(), modified, snapshotPath);
+        }
+    }
+    
+    /**
+     * Writes a binary snapshot of the package dependency graph, which 
+     * constructGraph(String, String) can load instead of parsing json
+     * 
+     * @param snapshotPath the name of the snapshot file
+     * @param sourceModified last modified time of the json file the graph
+     * was built from, used to tell if the snapshot is out of date
+     * @throws IOException if the file cannot be written
+     */
+    public void writeSnapshot(String snapshotPath, long sourceModified)
+        throws IOException {
+        PackageSnapshot.write(frozen(), sourceModified, snapshotPath);
+    }
+    
+    /**
+     * Adds a dependency to a package, so dependency has to be installed 
+     * before pkg. Packages that are not in the graph yet are added.
+     * 
+     * The global installation order is repaired by moving only the 
+     * packages placed between pkg and dependency, see TopologicalOrder, 
+     * instead of being found again for the whole graph. While the graph 
+     * has a cycle there is no order to repair, and the graph is searched 
+     * for the cycle the dependency would close. Every other query makes
+     * what it needs again from the whole graph.
+     * 
+     * @param pkg package that depends on dependency
+     * @param dependency package that pkg depends on
+     * @throws CycleException if dependency is pkg or already depends on 
+     * it, so the new dependency would close a cycle. Nothing is changed 
+     * and the exception lists the cycle.
+     */
+    public void addDependency(String pkg, String dependency) 
+        throws CycleException {
+        addPackage(pkg, Collections.singletonList(dependency));
+    }
+    
+    /**
+     * Adds a package with the given dependencies, or adds the dependencies
+     * to the package if it is already in the graph. Dependencies that are
+     * not in the graph yet are added as packages with no dependencies.
+     * 
+     * @param pkg package to add
+     * @param dependencies packages that pkg depends on
+     * @throws CycleException if one of the new dependencies would close a
+     * cycle, see addDependency. Nothing is changed.
+     */
+    public void addPackage(String pkg, Collection<String> dependencies) 
+        throws CycleException {
+        checkNotFrozen();
+        Graph graph = graph();
+        boolean listed = allPackages.contains(pkg);
+        TopologicalOrder order = order();
+        // A cycle through the new dependencies enters pkg once, so it is 
+        // closed by a single one of them. Check them all before adding any.
+        List<String> current = graph.getPredecessorsOf(pkg);
+        for (String dependency : dependencies) {
+            if (dependency.equals(pkg))
+                throw new CycleException(Collections.singletonList(pkg));
+            // Only packages already in the graph can be on a cycle
+            if (!listed || !allPackages.contains(dependency)
+                || current.contains(dependency)) continue;
+            // Moving packages for a dependency that is not added in the 
+            // end still leaves a valid order
+            List<String> cycle = order != null 
+                ? order.addEdge(dependency, pkg) 
+                : TopologicalOrder.pathBetween(graph, pkg, dependency);
+            if (cycle != null)
+                throw new CycleException(cycle);
+        }
+        addVertex(pkg);
+        for (String dependency : dependencies) {
+            addVertex(dependency);
+            if (order != null) order.addEdge(dependency, pkg);
+            graph.addEdge(dependency, pkg);
+        }
+        invalidateIndex();
+        cache.invalidate(pkg);
+    }
+    
+    /**
+     * Removes a dependency from a package. The global installation order
+     * stays valid as it is, every other query makes what it needs again
+     * from the whole graph.
+     * 
+     * @param pkg package that depends on dependency
+     * @param dependency package that pkg no longer depends on
+     * @throws PackageNotFoundException if either package does not exist 
+     * in the dependency graph
+     */
+    public void removeDependency(String pkg, String dependency) 
+        throws PackageNotFoundException {
+        checkNotFrozen();
+        if (!allPackages.contains(pkg) | !allPackages.contains(dependency))
+            throw new PackageNotFoundException();
+        if (!graph().getPredecessorsOf(pkg).contains(dependency)) return;
+        graph().removeEdge(dependency, pkg);
+        // The dependency may have been on a cycle
+        cyclic = false;
+        invalidateIndex();
+        cache.invalidate(pkg);
+    }
+    
+    /**
+     * Removes a package from the graph, the packages that depended on it
+     * no longer do. The global installation order stays valid as it is,
+     * every other query makes what it needs again from the whole graph.
+     * 
+     * @param pkg package to remove
+     * @throws PackageNotFoundException if the package does not exist in 
+     * the dependency graph
+     */
+    public void removePackage(String pkg) throws PackageNotFoundException {
+        checkNotFrozen();
+        if (!allPackages.remove(pkg))
+            throw new PackageNotFoundException();
+        graph().removeVertex(pkg);
+        if (order != null) order.removeVertex(pkg);
+        // The package may have been on a cycle
+        cyclic = false;
+        invalidateIndex();
+        cache.invalidate(pkg);
+    }
+    
+    /**
+     * Helper method to get all packages in the graph.
+     * 
+     * @return Set<String> of all the packages
+     */
+    public Set<String> getAllPackages() {
+        return graph != null ? graph.getAllVertices() : frozen.getAllVertices();
+    }
+    
+    /**
+     * Returns a read-only copy of this package manager, with everything 
+     * its queries need already computed. Nothing in the copy changes, so 
+     * any number of threads can query it with no locking while this 
+     * package manager is built up or changed. Publish the copy through a
+     * volatile or final field, replacing it with a new copy for each new 
+     * version of the graph.
+     * 
+     * The install schedule and the closure store can take long to make
+     * and are not always needed, so the copy makes them on first use. 
+     * Only one thread makes each of them, the others wait for it.
+     * 
+     * @return read-only package manager, constructGraph throws 
+     * IllegalStateException on it
+     */
+    public PackageManager freeze() {
+        if (readOnly) return this;
+        return new PackageManager(frozen(), components(), reachability(), 
+            allPackages, cache.capacity());
+    }
+    
+    /**
+     * Returns the cache of the installation orders found by 
+     * getInstallationOrder, with its hit, miss and eviction counts
+     * @return cache of this package manager
+     */
+    public InstallOrderCache getInstallOrderCache() {
+        return cache;
+    }
+
+
+
+    /**
+     * Given a package name, returns a list of packages in a
+     * valid installation order.  
+     * 
+     * Valid installation order means that each package is listed 
+     * before any packages that depend upon that package.
+     * 
+     * @return List<String>, order in which the packages have to be installed
+     *  
+     * @throws CycleException if you encounter a cycle in the graph 
+     * while finding the installation order for a particular package.
+     * Tip: Cycles in some other
+     * part of the graph that do not affect the installation order for the 
+     * specified package, should not throw this exception.
+     * 
+     * @throws PackageNotFoundException if the package passed
+     * does not exist in the dependency graph.
+     * 
+     * Orders and cycles found are kept in getInstallOrderCache() until 
+     * the dependencies of a package in them change.
+     * 
+     * The cache locks itself, but a package manager that can still change
+     * makes its frozen graph, components and reachability index on first
+     * use without locking. Threads calling this at the same time must go
+     * through a copy made by freeze(), which has them made already.
+     */
+    public List<String> getInstallationOrder(String pkg)
+        throws CycleException, PackageNotFoundException {
+        // Found before and nothing it depends on changed since
+        InstallOrderCache.Entry cached = cache.get(pkg);
+        if (cached != null) {
+            if (cached.cycle != null)
+                throw new CycleException(new ArrayList<>(cached.cycle));
+            return new ArrayList<String>(cached.order);
+        }
+        int id = frozen().idOf(pkg);
+        // If pkg is not in the graph throw exception
+        if (id < 0)
+            throw new PackageNotFoundException();
+        // Create list to hold installation order for the package
+        ArrayList<String> installOrder = new ArrayList<String>();
+        try (Traversal walk = Traversal.begin(frozen())) {
+            // If there is a cycle at pkg throw exception
+            if (hasCycleAt(pkg))
+                throw cycleAt(pkg);
+            // Get the list of packages that need to be installed before pkg
+            // and pkg as the last item. If there's a cycle in its 
+            // installation order getInstallationOrderAt will throw a 
+            // CycleExcpetion
+            installOrder = getInstallationOrderAt(walk, id, installOrder);
+        } catch (CycleException e) {
+            cache.putCycle(pkg, e.getCycle());
+            throw e;
+        }
+        cache.putOrder(pkg, new ArrayList<String>(installOrder));
+        return installOrder;
+    }
+
+    
+    
+    /**
+     * Given two packages - one to be installed and the other installed, 
+     * return a List of the packages that need to be newly installed. 
+     * 
+     * For example, refer to shared_dependecies.json - toInstall("A","B") 
+     * If package A needs to be installed and packageB is already installed, 
+     * return the list ["A", "C"] since D will have been installed when 
+     * B was previously installed.
+     * 
+     * @return List<String>, packages that need to be newly installed.
+     * 
+     * @throws CycleException if you encounter a cycle in the graph 
+     * while finding the dependencies of the given packages.
+     * If there is a cycle in some other part of the graph that doesn't 
+     * affect the parsing of these dependencies, 
+     * cycle exception should not be thrown.
+     * 
+     * @throws PackageNotFoundException if any of the packages passed 
+     * do not exist in the dependency graph.
+     */
+    public List<String> toInstall(String newPkg, String installedPkg)
+        throws CycleException, PackageNotFoundException {
+        return toInstall(Collections.singletonList(newPkg), 
+            Collections.singletonList(installedPkg));
+    }
+    
+    /**
+     * Given packages to be installed and packages already installed, 
+     * return a List of the packages that need to be newly installed, in 
+     * an order that installs each one after the packages it depends on.
+     * 
+     * Everything the installed packages depend on is marked once, then 
+     * the packages the requested packages depend on are found in one 
+     * traversal that never goes into a marked package. The result is the 
+     * installation orders of the requested packages one after the other, 
+     * without repeats and without installed packages.
+     * 
+     * @param requested packages to be installed
+     * @param installed packages already installed
+     * @return List<String>, packages that need to be newly installed.
+     * 
+     * @throws CycleException if you encounter a cycle in the graph 
+     * while finding the dependencies of the given packages.
+     * 
+     * @throws PackageNotFoundException if any of the packages passed 
+     * do not exist in the dependency graph.
+     */
+    public List<String> toInstall(Collection<String> requested, 
+        Collection<String> installed)
+        throws CycleException, PackageNotFoundException {
+        int[] requestedIds = idsOf(requested);
+        int[] installedIds = idsOf(installed);
+        // Check to see if a cycle is present at any of the packages
+        for (int id : requestedIds) {
+            if (components().isOnCycle(id))
+                throw cycleAt(frozen().nameOf(id));
+        }
+        for (int id : installedIds) {
+            if (components().isOnCycle(id))
+                throw cycleAt(frozen().nameOf(id));
+        }
+        
+        // List of packages that still need to be installed
+        ArrayList<String> installNeeded = new ArrayList<String>();
+        try (Traversal walk = Traversal.begin(frozen())) {
+            // Mark the installed packages and all packages they depend on,
+            // those packages are already installed
+            markInstalled(walk, installedIds);
+            for (int id : requestedIds) {
+                // Find the packages it depends on the same way as 
+                // getInstallationOrder, but never go into an installed or 
+                // already added package, everything it depends on is  
+                // added too. What is left is in the same order as in 
+                // getInstallationOrder.
+                installNeeded = getInstallationOrderAt(walk, id, 
+                    installNeeded);
+            }
+        }
+        return installNeeded;
+    }
+    
+    /**
+     * Finds the packages each of many hosts needs to newly install, see
+     * toInstall(Collection, Collection). The hosts are worked out in 
+     * parallel on the common ForkJoinPool, all reading the same graph.
+     * 
+     * The graph must not change during the call, call it on a package 
+     * manager made by freeze() to keep changing the graph meanwhile.
+     * 
+     * @param requested packages to be installed on every host
+     * @param installedPerHost packages already installed on each host
+     * @return packages each host needs to newly install, in the order
+     * of the hosts
+     * @throws CycleException if you encounter a cycle in the graph 
+     * while finding the dependencies for any host, the first such host 
+     * in the list decides the exception
+     * @throws PackageNotFoundException if any of the packages passed 
+     * do not exist in the dependency graph.
+     */
+    public List<List<String>> toInstallForHosts(Collection<String> requested,
+        List<? extends Collection<String>> installedPerHost)
+        throws CycleException, PackageNotFoundException {
+        // Make everything the hosts read now, so they only read it
+        frozen();
+        components();
+        List<Future<List<String>>> hosts = new ArrayList<>();
+        for (Collection<String> installed : installedPerHost) {
+            hosts.add(ForkJoinPool.commonPool().submit(
+                () -> toInstall(requested, installed)));
+        }
+        List<List<String>> installNeeded = new ArrayList<>(hosts.size());
+        try {
+            for (Future<List<String>> host : hosts) {
+                installNeeded.add(hostResult(host));
+            }
+        } finally {
+            // A host failed, there is no need to work out the rest
+            for (Future<List<String>> host : hosts) {
+                host.cancel(true);
+            }
+        }
+        return installNeeded;
+    }
+    
+    /**
+     * Checks if a package depends on another one, directly or through 
+     * the dependencies of its dependencies.
+     * 
+     * Uses a reachability index that is built once for the graph, so a 
+     * check usually takes constant time no matter how big the graph is.
+     * 
+     * @param pkg the package that may depend on dependency
+     * @param dependency the package that may be a dependency of pkg
+     * @return true if dependency has to be installed before pkg, a package
+     * only depends on itself if it is on a cycle
+     * @throws PackageNotFoundException if either package does not exist 
+     * in the dependency graph
+     */
+    public boolean dependsOn(String pkg, String dependency) 
+        throws PackageNotFoundException {
+        int id = frozen().idOf(pkg);
+        int dependencyId = frozen().idOf(dependency);
+        if (id < 0 | dependencyId < 0)
+            throw new PackageNotFoundException();
+        // Edges go from a dependency to the packages that depend on it
+        return reachability().reaches(dependencyId, id);
+    }
+    
+    /**
+     * Return a valid global installation order of all the packages in the 
+     * dependency graph.
+     * 
+     * assumes: no package has been installed and you are required to install 
+     * all the packages
+     * 
+     * returns a valid installation order that will not violate any dependencies
+     * 
+     * @return List<String>, order in which all the packages have
+     * to be installed
+     * @throws CycleException if you encounter a cycle in the graph
+     */
+     public List<String> getInstallationOrderForAllPackages()        
+       throws CycleException {
+       // The order was found before and kept up to date since
+       if(order != null) {
+           return order.toList();
+       }
+       // Packages and their successors as ids, ids follow the order
+       // of the packages in allPackages
+       CompactGraph compact = index();
+       int[] offsets = compact.offsets();
+       int[] targets = compact.targets();
+       int n = compact.order();
+       // List that will store valid global installation order
+       List<String> installOrder = new ArrayList<String>(n);
+       // Holds number of dependencies for each package
+       int[] numDepends = compact.inDegrees();
+       // Queue for traversing graph, every package is added at most once
+       // Will store packages with no dependencies (predecessors)
+       int[] queue = new int[n];
+       int head = 0;
+       int tail = 0;
+       // Add packages with no dependencies to queue
+       for(int current = 0; current < n; current++) { 
+           if(numDepends[current] == 0){
+               queue[tail++] = current;
+           }
+       }
+       while(head < tail) {
+           // Get package with no dependencies
+           int currVertex = queue[head++];
+           // Add to installation order
+           installOrder.add(compact.nameOf(currVertex));
+           // Go through all its successors
+           for(int i = offsets[currVertex]; i < offsets[currVertex + 1]; i++) {
+              int adj = targets[i];
+              // Decrement the number of dependencies for the package,
+              // since one of its dependencies has already been added to
+              // the installation order
+              numDepends[adj]--;   
+              //If the vertex has no more dependencies add to queue
+              if(numDepends[adj] == 0) {
+                  queue[tail++] = adj;
+              }
+           }
+       }
+       // Packages on a cycle, and packages that depend on them, never run
+       // out of dependencies so they were never added to the order
+       if(installOrder.size() != n) {
+           for(int current = 0; current < n; current++) {
+               if(numDepends[current] > 0 
+                   && components().isOnCycle(current)) {
+                   throw cycleAt(compact.nameOf(current));
+               }
+           }
+       }
+       // Keep the order up to date as dependencies are added and removed,
+       // once there is a graph to add them to
+       if(graph != null) {
+           order = new TopologicalOrder(graph, installOrder);
+       }
+       return  installOrder;
+   }
+    /**
+     * Return the packages of the dependency graph in layers, each layer 
+     * holds the packages whose dependencies are all in earlier layers, so
+     * the packages of a layer can be installed at the same time.
+     * 
+     * @return List<List<String>>, read-only layers in the order they have
+     * to be installed
+     * @throws CycleException if you encounter a cycle in the graph
+     */
+    public List<List<String>> getInstallationLayers() throws CycleException {
+        return getInstallSchedule().layers();
+    }
+    
+    /**
+     * Returns the schedule for installing every package in parallel, see
+     * InstallSchedule. It is made once for each version of the graph.
+     * 
+     * Install all packages on a pool of 8 threads with
+     * getInstallSchedule().install(installer, pool, 8)
+     * 
+     * @return schedule of all the packages
+     * @throws CycleException if you encounter a cycle in the graph
+     */
+    public InstallSchedule getInstallSchedule() throws CycleException {
+        InstallSchedule made = schedule;
+        if (made == null) {
+            // Threads reading a frozen copy may get here together, one of
+            // them makes the schedule
+            synchronized (this) {
+                made = schedule;
+                if (made == null) {
+                    CompactGraph compact = index();
+                    // Check for cycle in the graph 
+                    for (int id = 0; id < compact.order(); id++) {
+                        if (components().isOnCycle(id))
+                            throw cycleAt(compact.nameOf(id));
+                    }
+                    made = new InstallSchedule(compact);
+                    schedule = made;
+                }
+            }
+        }
+        return made;
+    }
+    
+    /**
+     * Finds the longest chains of dependencies, with every package taking
+     * the same time to install, see getCriticalPathReport(Map)
+     * 
+     * @return depth, height and slack of every package
+     * @throws CycleException if you encounter a cycle in the graph
+     */
+    public CriticalPathReport getCriticalPathReport() throws CycleException {
+        return getCriticalPathReport(Collections.emptyMap());
+    }
+    
+    /**
+     * Finds the longest chains of dependencies, the ones that bound how 
+     * long installing every package takes, see CriticalPathReport.
+     * 
+     * The costs can be read from the json file with 
+     * CriticalPathReport.readCosts
+     * 
+     * @param costs time each package takes to install, packages not in 
+     * it take 1
+     * @return depth, height and slack of every package
+     * @throws CycleException if you encounter a cycle in the graph
+     */
+    public CriticalPathReport getCriticalPathReport(
+        Map<String, ? extends Number> costs) throws CycleException {
+        return new CriticalPathReport(getInstallSchedule(), costs);
+    }
+    
+    /**
+     * Find and return the name of the package with 
+     * the maximum number of dependencies.
+     * Tip: it's not just the number of dependencies given in the json file.  
+     * The number of dependencies includes the dependencies of its dependencies.  
+     * But, if a package is listed in multiple places, it is only counted once.
+     * 
+     * Example: if A depends on B and C, and B depends on C, and C depends on D.  
+     * Then,  A has 3 dependencies - B,C and D.
+     * 
+     * If packages tie, the one whose name comes first is returned.
+     * 
+     * @return String, name of the package with most dependencies.
+     * @throws CycleException if you encounter a cycle in the graph
+     */
+    public String getPackageWithMaxDependencies() throws CycleException {
+        // Check for cycle in the graph 
+        InstallSchedule schedule = getInstallSchedule();
+        CompactGraph compact = index();
+        // Count the total number of dependencies of every package at once,
+        // sharing the work between packages with common dependencies. 
+        // Big graphs are counted a layer at a time on the common pool.
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        DependencyCounts numOfDepends = 
+            compact.order() >= PARALLEL_COUNT_THRESHOLD 
+                && pool.getParallelism() > 1
+            ? new DependencyCounts(frozen(), schedule, pool)
+            : new DependencyCounts(compact);
+        // Find the package with the most dependencies
+        int max = numOfDepends.max();
+        // return package with most dependencies 
+        return max < 0 ? null : compact.nameOf(max);
+    }
+
+    /**
+     * Estimates how many packages each package depends on and returns 
+     * the packages with the most, see DependencySketches. Uses a few KB 
+     * per package at most where getPackageWithMaxDependencies needs a bit
+     * per package for each package, so it suits very large graphs.
+     * 
+     * @param k number of packages to return
+     * @param precision log2 of the number of registers of each sketch, 
+     * from 4 to 12, each step up takes twice the memory and makes the 
+     * error about 1.4 times smaller
+     * @return the k packages with the largest estimates, largest first,
+     * each with the bounds its count is within about 95% of the time
+     * @throws CycleException if you encounter a cycle in the graph
+     */
+    public List<DependencySketches.Estimate> 
+        estimatePackagesWithMaxDependencies(int k, int precision) 
+        throws CycleException {
+        // Check for cycle in the graph 
+        getInstallSchedule();
+        return new DependencySketches(index(), precision).top(k);
+    }
+
+    /**
+     * Returns the transitive dependencies of every package, each kept as
+     * a compressed bitmap, see ClosureStore. It is built once for each 
+     * version of the graph and can be written to disk with write().
+     * 
+     * @return dependencies of every package
+     * @throws CycleException if you encounter a cycle in the graph
+     */
+    public ClosureStore getClosureStore() throws CycleException {
+        ClosureStore made = closures;
+        if (made == null) {
+            // Made once the same way as the schedule
+            synchronized (this) {
+                made = closures;
+                if (made == null) {
+                    made = new ClosureStore(frozen(), getInstallSchedule());
+                    closures = made;
+                }
+            }
+        }
+        return made;
+    }
+
+    /* Private methods I added to implementation */
+    
+    /**
+     * Method that starts at a vertex and walks the graph depth first, 
+     * adding the vertex and its dependencies in the correct installation
+     * order.
+     * Adds a package once all of its own dependencies were added, the
+     * first ones added are vertices with no predecessors and the last one
+     * is pkg. The walk uses the scratch arrays of walk instead of 
+     * recursing, so dependency chains of any depth are safe and nothing
+     * is allocated but the names added.
+     * @param walk - traversal of frozen(), packages it visited already 
+     * are skipped together with their dependencies
+     * @param pkg - id of the starting vertex, not visited yet
+     * @param installOrder - list contain installation order
+     * @return
+     */   
+   private ArrayList<String> getInstallationOrderAt(Traversal walk, int pkg,
+       ArrayList<String> installOrder) throws CycleException{
+       FrozenGraph frozen = frozen();
+       StronglyConnectedComponents components = components();
+       walk.depthFirst(pkg, Traversal.Direction.PREDECESSORS,
+           new Traversal.Visitor<CycleException>() {
+               public boolean enter(int dependency) throws CycleException {
+                   // Check that there's no cycle at the dependency
+                   if (components.isOnCycle(dependency))
+                       throw cycleAt(frozen.nameOf(dependency));
+                   return true;
+               }
+
+               public void leave(int dependency) {
+                   // Its dependencies are in the installation order
+                   installOrder.add(frozen.nameOf(dependency));
+               }
+           });
+       return  installOrder;
+   }
+   
+   /**
+    * Marks packages and every package they depend on visited in walk, 
+    * with breadth first walks of the packages they depend on
+    * @param walk traversal of frozen() to mark the packages in
+    * @param pkgs ids of the installed packages
+    * @throws CycleException if one of the packages is on a cycle
+    */
+   private void markInstalled(Traversal walk, int[] pkgs) 
+       throws CycleException {
+       StronglyConnectedComponents components = components();
+       for(int pkg : pkgs) {
+           walk.breadthFirst(pkg, Traversal.Direction.PREDECESSORS, 
+               dependency -> {
+                   if(components.isOnCycle(dependency))
+                       throw cycleAt(frozen().nameOf(dependency));
+                   return true;
+               });
+       }
+   }
+   /**
+    * Checks if a vertex is on a cycle, a vertex is on a cycle if you can get
+    * back to the vertex when traversing the graph from it.
+    * Uses the strongly connected components of the graph, which are found
+    * once for the whole graph, so each check takes constant time.
+    * @param vertex- starting 
+    * @return true if a cycle is present, false if not
+    */
+   private boolean hasCycleAt(String vertex){               
+       int id = index().idOf(vertex);
+       return id >= 0 && components().isOnCycle(id);
+   }
+   
+   /**
+    * Creates the exception for a cycle at a vertex, the exception lists
+    * the packages on the cycle
+    * @param vertex- vertex on a cycle
+    * @return CycleException listing the cycle
+    */
+   private CycleException cycleAt(String vertex) {
+       return new CycleException(
+           components().cycleThrough(index().idOf(vertex)));
+   }
+   
+   /**
+    * Adds a package and the edges from its dependencies to the graph
+    * @param pkg package read from json, skipped if it has no name
+    */
+   private void addPackage(Package pkg) {
+       String name = pkg.getName();
+       // Skip objects in the packages array without a name
+       if (name == null) return;
+       // Add the package to the graph
+       graph.addVertex(name); 
+       // Add the package to the list containing all packages
+       allPackages.add(name);
+       for (String depend : pkg.getDependencies()) {
+           // Create edges that go from the packages in the 
+           // dependency array to the package just added
+           graph.addEdge(depend, name);     
+       }
+   }
+   
+   /**
+    * If a package was only present in dependency array(s) of other
+    * packages add it to allPackages
+    * The package has zero dependencies 
+    */
+   private void addUnlistedPackages() {
+       for(String str: graph.getAllVertices()) {
+           if(allPackages.contains(str)) {   
+               continue;
+           }else {
+               allPackages.add(str);
+           }
+       }   
+   }
+   
+   /**
+    * Finds the ids of packages
+    * @param pkgs names of packages
+    * @return the id of each package, in the same order
+    * @throws PackageNotFoundException if a package is not in the graph
+    */
+   private int[] idsOf(Collection<String> pkgs) 
+       throws PackageNotFoundException {
+       int[] ids = new int[pkgs.size()];
+       int i = 0;
+       for(String pkg : pkgs) {
+           ids[i] = frozen().idOf(pkg);
+           if(ids[i++] < 0)
+               throw new PackageNotFoundException();
+       }
+       return ids;
+   }
+   
+   /**
+    * Waits for the packages a host needs to be found, rethrowing the 
+    * exception that stopped them from being found
+    * @param host the task finding the packages
+    */
+   private static List<String> hostResult(Future<List<String>> host) 
+       throws CycleException, PackageNotFoundException {
+       try {
+           return host.get();
+       } catch (InterruptedException e) {
+           Thread.currentThread().interrupt();
+           throw new IllegalStateException("interrupted", e);
+       } catch (ExecutionException e) {
+           // The common pool wraps checked exceptions thrown by a task in
+           // RuntimeExceptions, find the exception the host threw
+           for (Throwable t = e.getCause(); t != null; t = t.getCause()) {
+               if (t instanceof CycleException)
+                   throw (CycleException) t;
+               if (t instanceof PackageNotFoundException)
+                   throw (PackageNotFoundException) t;
+           }
+           if (e.getCause() instanceof RuntimeException)
+               throw (RuntimeException) e.getCause();
+           if (e.getCause() instanceof Error)
+               throw (Error) e.getCause();
+           throw new IllegalStateException(e.getCause());
+       }
+   }
+   
+   /**
+    * Reads every package of a json shard
+    * @param jsonFilepath the name of the shard
+    * @return the packages in the shard
+    */
+   private static List<Package> readShard(String jsonFilepath) 
+       throws IOException, ParseException {
+       List<Package> packages = new ArrayList<>();
+       try (PackageReader reader = 
+           new PackageReader(new FileReader(jsonFilepath))) {
+           Package pkg;
+           while ((pkg = reader.next()) != null) { 
+               packages.add(pkg);
+           }
+       }
+       return packages;
+   }
+   
+   /**
+    * Waits for a shard to be parsed and returns its packages, rethrowing
+    * the exception that stopped it from being parsed
+    * @param jsonFilepath the name of the shard
+    * @param shard the task parsing the shard
+    */
+   private static List<Package> shardResult(String jsonFilepath, 
+       Future<List<Package>> shard) throws IOException, ParseException {
+       try {
+           return shard.get();
+       } catch (InterruptedException e) {
+           Thread.currentThread().interrupt();
+           throw new InterruptedIOException(
+               "interrupted reading " + jsonFilepath);
+       } catch (ExecutionException e) {
+           // The common pool wraps checked exceptions thrown by a task in
+           // RuntimeExceptions, find the exception the shard threw
+           Throwable cause = e.getCause();
+           for (Throwable t = cause; t != null; t = t.getCause()) {
+               if (t instanceof ParseException | t instanceof IOException) {
+                   cause = t;
+                   break;
+               }
+           }
+           if (cause instanceof ParseException)
+               throw new ShardParseException(jsonFilepath, 
+                   (ParseException) cause);
+           if (cause instanceof IOException)
+               throw (IOException) cause;
+           if (cause instanceof RuntimeException)
+               throw (RuntimeException) cause;
+           if (cause instanceof Error)
+               throw (Error) cause;
+           throw new IOException(jsonFilepath, cause);
+       }
+   }
+   
+   /**
+    * Every .json file in a directory, sorted by name
+    * @param directory directory holding the json shards
+    */
+   private static List<String> shardsIn(File directory) 
+       throws FileNotFoundException {
+       File[] files = directory.listFiles(
+           (dir, name) -> name.endsWith(".json"));
+       if (files == null)
+           throw new FileNotFoundException(directory.getPath());
+       Arrays.sort(files);
+       List<String> shards = new ArrayList<>();
+       for (File file : files) {
+           shards.add(file.getPath());
+       }
+       return shards;
+   }
+   
+   /**
+    * Returns the frozen copy of the graph, making it if the graph changed
+    * since it was last made. Vertex ids follow the order of allPackages.
+    * @return frozen copy of the graph
+    */
+   private FrozenGraph frozen() {
+       if (frozen == null) {
+           frozen = new FrozenGraph(graph, allPackages);
+       }
+       return frozen;
+   }
+   
+   /**
+    * Returns the packages and their successors as ids, see frozen()
+    * @return compact graph of the packages
+    */
+   private CompactGraph index() {
+       return frozen().compact();
+   }
+   
+   /**
+    * Returns the strongly connected components of the graph, finding them
+    * if the graph changed since they were last found.
+    * @return strongly connected components of index()
+    */
+   private StronglyConnectedComponents components() {
+       if (components == null) {
+           components = new StronglyConnectedComponents(index());
+       }
+       return components;
+   }
+   
+   /**
+    * Returns the reachability index of the graph, building it if the 
+    * graph changed since it was last built.
+    * @return reachability index of index()
+    */
+   private ReachabilityIndex reachability() {
+       if (reachability == null) {
+           reachability = new ReachabilityIndex(index(), components());
+       }
+       return reachability;
+   }
+   
+   /**
+    * Loads the packages and dependencies of a snapshot. If there are no
+    * packages yet, the frozen graph of the snapshot is used as is and the
+    * graph is only made from it once the packages change, see graph(). 
+    * Otherwise they are added to the graph.
+    * @param snapshot graph loaded from a snapshot
+    */
+   private void loadGraph(FrozenGraph snapshot) {
+       invalidate();
+       if (allPackages.isEmpty()) {
+           // The snapshot has the same ids and lists as frozen() would
+           graph = null;
+           frozen = snapshot;
+           for (int v = 0; v < snapshot.order(); v++) {
+               allPackages.add(snapshot.nameOf(v));
+           }
+           return;
+       }
+       for (int v = 0; v < snapshot.order(); v++) {
+           addVertex(snapshot.nameOf(v));
+       }
+       for (int v = 0; v < snapshot.order(); v++) {
+           String name = snapshot.nameOf(v);
+           for (String dependency : snapshot.getPredecessorsOf(name)) {
+               graph.addEdge(dependency, name);
+           }
+       }
+   }
+   
+   /**
+    * Returns the graph of the packages, making it from the frozen graph
+    * if the packages were loaded from a snapshot and not changed since.
+    * Must be called before the graph is changed.
+    * @return graph of the packages
+    */
+   private Graph graph() {
+       if (graph == null) {
+           graph = new Graph(frozen);
+       }
+       return graph;
+   }
+   
+   /**
+    * Adds a package with no dependencies if it is not in the graph
+    * @param pkg package to add
+    */
+   private void addVertex(String pkg) {
+       if (allPackages.add(pkg)) {
+           graph.addVertex(pkg);
+           if (order != null) order.addVertex(pkg);
+       }
+   }
+   
+   /**
+    * Returns the global installation order kept up to date as the graph
+    * changes, finding it if it has not been found yet
+    * @return installation order, or null if the graph has a cycle
+    */
+   private TopologicalOrder order() {
+       if (order == null && !cyclic) {
+           try {
+               getInstallationOrderForAllPackages();
+           } catch (CycleException e) {
+               cyclic = true;
+           }
+       }
+       return order;
+   }
+   
+   /**
+    * Drops everything computed from the graph, must be called whenever
+    * the graph is built again
+    */
+   private void invalidate() {
+       invalidateIndex();
+       order = null;
+       cyclic = false;
+       cache.clear();
+   }
+   
+   /**
+    * Drops the frozen copy of the graph and everything computed from it,
+    * must be called whenever the graph changes. Each of them is made 
+    * again from the whole graph when it is next needed.
+    */
+   private void invalidateIndex() {
+       // Make the graph before dropping the only copy of a snapshot
+       graph();
+       frozen = null;
+       components = null;
+       reachability = null;
+       schedule = null;
+       closures = null;
+   }
+   
+   /**
+    * Throws IllegalStateException if this package manager was made by
+    * freeze() and can not be changed
+    */
+   private void checkNotFrozen() {
+       if (readOnly)
+           throw new IllegalStateException("package manager is frozen");
+   }
+   
+   public static void main(String[] args) {
+   }
+}
@@ -1,3 +1,5 @@
+package directedgraph;
+
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.List;
@@ -6,6 +8,9 @@ import java.util.Stack;
 import java.util.TreeSet;
 import java.io.FileReader;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import org.json.simple.JSONArray;
@@ -86,7 +91,6 @@ public class PackageManager2{
             // Add the value associated with name to the graph
             graph.addVertex((String) t.get("name")); 
             allPackages.add((String) t.get("name"));
-            System.out.println((String) t.get("name"));
             // Get the depencencies array
             JSONArray depend = (JSONArray) t.get("dependencies");
             numPred.set(i, depend.size());
@@ -111,8 +115,6 @@ public class PackageManager2{
                 numPred.add(0);
             }
         }
-        
-        graph.printGraph();
 
     }
     
@@ -156,11 +158,7 @@ public class PackageManager2{
             throw new CycleException();
         // Create list to hold insallation order for the package
         ArrayList<String> installOrder = new ArrayList<String>();
-        // Transpose the graph, makes it easier to traverse the graph
-        // from a vertex and find all its dependencies
-        Graph graphT = transpose();
         // Gets the installation order for a particular graph
-        //installOrder = getInstallationOrder(pkg, installOrder, graphT);
         installOrder = getInstallationOrdertAt(pkg, installOrder);
         // Add the package as the last item in its installation order
         installOrder.add(pkg);
@@ -244,30 +242,22 @@ public class PackageManager2{
         // All vertices present in the graph
         Set<String> vertices = graph.getAllVertices();
         // Holds number of incoming edges for each vertex
-        int[] numInEdges = new int[vertices.size()];    
-        int visitedVertexes = 0;// To keep track of visited node in graph
+        HashMap<String, Integer> numInEdges = new HashMap<>();
         List<String> adjacent;
-        // Transpose the graph the out going edges of this graph correspond 
-        // to the incoming edges of the original graph
-        Graph graphT = transpose();
         //Get number of incoming edges for each vertex
+        //The predecessors of a vertex are the sources of its incoming edges
         for(String vertex: vertices) {   
             if (hasCycleAt(vertex)) {
                 throw new CycleException();
             }
-            adjacent = graphT.getAdjacentVerticesOf(vertex);
-            numInEdges[visitedVertexes] = adjacent.size();
-            visitedVertexes++;
+            numInEdges.put(vertex, graph.getPredecessorsOf(vertex).size());
         }
    
-        
-        visitedVertexes = 0;
         //Add vertexes with zero incoming edges to the Queue
         for(String vertex: vertices) {   
-            if(numInEdges[visitedVertexes] == 0){
+            if(numInEdges.get(vertex) == 0){
                 queue.add(vertex);
             }
-            visitedVertexes++;
         }
 
         
@@ -282,10 +272,10 @@ public class PackageManager2{
             adjacent =  graph.getAdjacentVerticesOf(currVertex);
             
             for(String adj: adjacent) {
-                // Remove the "incoming edge" from the transposed graph
-                graphT.removeEdge(adj, currVertex);
+                // Remove the incoming edge from currVertex
+                numInEdges.put(adj, numInEdges.get(adj) - 1);
                 //If the vertex has no incoming edges add to queue
-                if(graphT.getAdjacentVerticesOf(adj).size() == 0) {
+                if(numInEdges.get(adj) == 0) {
                     queue.add(adj);
                 }               
             }
@@ -389,7 +379,7 @@ public class PackageManager2{
             if (hasCycleAt(vertex))
                 throw new CycleException();
             ArrayList<String> installOrder = new ArrayList<>();
-            installOrder = getInstallationOrder(vertex, installOrder, transpose());
+            installOrder = getInstallationOrder(vertex, installOrder);
             // The size of the list of a vertexe's installation order
             // is the number of dependencies needed to install 
             numOfDepends[i] = installOrder.size();
@@ -413,75 +403,76 @@ public class PackageManager2{
      * My Methods
      */
     /**
-     * Method that starts at a vertex uses recursion to traverse the 
-     * graph and add the dependencies of the vertex in the correct installation
-     * order.
-     * Adds dependencies after recursion hits the base case, which is a vertex 
-     * with no adjacent vertexes. 
+     * Method that starts at a vertex and walks the graph to add the 
+     * dependencies of the vertex in the correct installation order.
+     * Checks each dependency for a cycle before walking it.
      * @param vertex- starting vertex
      * @param installOrder - list contain installation order
-     * @param graphT - transposed graph of package manager graph
      * @return
      */
    private ArrayList<String> getInstallationOrder(String vertex, 
-       ArrayList<String> installOrder,Graph graphT)
+       ArrayList<String> installOrder)
        throws CycleException{
-       // Get successors of the vertex
-       List<String> adjacent = graphT.getAdjacentVerticesOf(vertex);
-    
-       // Loop through the successors 
-       for(int i = 0; i < adjacent.size(); i++) {
-           // Recursively go through the adjacent vertexes of each 
-           // successor 
-           if (hasCycleAt(adjacent.get(i)))
-               throw new CycleException();
-           installOrder = 
-               getInstallationOrder(adjacent.get(i), installOrder, graphT);  
-           // Vertexes can share dependencies
-           // So if the dependencies was already added to the installation order
-           // it does not need to be added again
-           if(!installOrder.contains(adjacent.get(i))) {
-               installOrder.add(adjacent.get(i));
-           }
-       }
-       return installOrder;
+       return installOrderOf(vertex, installOrder, true);
    }
    
    private ArrayList<String> getInstallationOrdertAt(String pkg, ArrayList<String> installOrder)
        throws CycleException{
-       //ArrayList<String> installOrder = new ArrayList<String>(graph.getAllVertices().size());
-       // Queue for traversing graph 
-       // Will store vertexes with no incoming edges
-       for(String vertex: graph.getAllVertices()) {
-           List<String> adjacent = graph.getAdjacentVerticesOf(vertex);
-           if(adjacent.contains(pkg)) {
-               installOrder = getInstallationOrdertAt(vertex, installOrder);
-               if(!installOrder.contains(vertex)) {
-               installOrder.add(vertex);
-               }
-           }
-       }
-       
-       return  installOrder;
+       return installOrderOf(pkg, installOrder, false);
    }
+   
    /**
-    * Transposes the graph created by Construct graph
-    * @return - graphT
+    * Walks the graph depth first from a vertex and adds the dependencies 
+    * of the vertex in the correct installation order, each one once all 
+    * of its own dependencies were added.
+    * Keeps its own stack of vertices instead of recursing, so dependency 
+    * chains of any depth are safe.
+    * @param pkg - starting vertex
+    * @param installOrder - list contain installation order
+    * @param checkCycles - check each dependency for a cycle before 
+    * walking it
+    * @return
     */
-   private Graph transpose() {
-       Graph graphT = new Graph();
-       Set<String> allVertices = graph.getAllVertices();
-       //Iterator<String> itr = allVertices.iterator();
-       List<String> adjacent;
-       //String v;
-       
-       for(  String v: allVertices) {
-           adjacent = graph.getAdjacentVerticesOf(v);
-           for(int j = 0; j < adjacent.size(); j++) {
-               graphT.addEdge(adjacent.get(j), v);
+   private ArrayList<String> installOrderOf(String pkg, 
+       ArrayList<String> installOrder, boolean checkCycles)
+       throws CycleException{
+       // Vertexes can share dependencies, so remember the ones already 
+       // in the installation order or being walked
+       HashSet<String> seen = new HashSet<>(installOrder);
+       seen.add(pkg);
+       // Vertexes being walked, and for each the index of the next 
+       // predecessor to look at
+       String[] stack = new String[16];
+       int[] next = new int[16];
+       stack[0] = pkg;
+       int depth = 1;
+       while(depth > 0) {
+           String current = stack[depth - 1];
+           List<String> adjacent = graph.getPredecessorsOf(current);
+           if(next[depth - 1] == adjacent.size()) {
+               // All dependencies added, add the vertex itself unless it
+               // is the starting vertex
+               depth--;
+               if(depth > 0) {
+                   installOrder.add(current);
+               }
+               continue;
+           }
+           String dependency = adjacent.get(next[depth - 1]++);
+           if(!seen.add(dependency)) {
+               continue;
            }
+           if (checkCycles && hasCycleAt(dependency))
+               throw new CycleException();
+           if(depth == stack.length) {
+               stack = Arrays.copyOf(stack, depth * 2);
+               next = Arrays.copyOf(next, depth * 2);
+           }
+           stack[depth] = dependency;
+           next[depth] = 0;
+           depth++;
        }
-       return graphT;
+       return installOrder;
    }
    
    private boolean hasCycleAt(String vertex){        
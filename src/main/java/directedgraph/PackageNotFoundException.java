@@ -1,3 +1,5 @@
+package directedgraph;
+
 
 @SuppressWarnings("serial")
 public class PackageNotFoundException extends Exception {
@@ -0,0 +1,43 @@
+package directedgraph;
+
+import org.json.simple.parser.ParseException;
+
+@SuppressWarnings("serial")
+public class PackageParseException extends ParseException {
+
+    // Number of characters read before the error. getPosition() is an int
+    // and stops at Integer.MAX_VALUE, this does not
+    private long offset;
+
+    public PackageParseException(long offset, int errorType,
+        Object unexpectedObject) {
+        super((int) Math.min(offset, Integer.MAX_VALUE), errorType,
+            unexpectedObject);
+        this.offset = offset;
+    }
+
+    /**
+     * Returns the position of the error in the input
+     * @return number of characters read before the error
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public String toString() {
+        switch (getErrorType()) {
+        case ERROR_UNEXPECTED_CHAR:
+            return "Unexpected character (" + getUnexpectedObject()
+                + ") at position " + offset + ".";
+        case ERROR_UNEXPECTED_TOKEN:
+            return "Unexpected token " + getUnexpectedObject()
+                + " at position " + offset + ".";
+        case ERROR_UNEXPECTED_EXCEPTION:
+            return "Unexpected exception at position " + offset + ": "
+                + getUnexpectedObject();
+        default:
+            return "Unknown error at position " + offset + ".";
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package directedgraph;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Filename:   PackageReader.java
+ * Project:    p4
+ * Authors:    Sam Peaslee
+ *
+ * Streaming reader for json package dependency files.
+ *
+ * Reads a file of the form
+ *   {"packages": [{"name": "A", "dependencies": ["B", "C"]}, ...]}
+ * one package at a time, so only the package being read is held in memory
+ * instead of the whole document. Fields other than "name" and
+ * "dependencies", and top level fields other than "packages", are skipped.
+ *
+ * The whole input is checked, anything that is not valid json throws a
+ * PackageParseException, the ParseException json-simple throws with the
+ * position kept as a long.
+ */
+public class PackageReader implements Closeable {
+
+    // Where the reader is in the document
+    private static final int START = 0;
+    private static final int IN_PACKAGES = 1;
+    private static final int DONE = 2;
+
+    private Reader in;
+    // Characters read from in but not consumed yet
+    private char[] buffer = new char[8192];
+    private int bufferPos;
+    private int bufferLen;
+    // Number of characters consumed, used for error positions. A long,
+    // files being streamed can be larger than 2 GB
+    private long position;
+    // Current state, one of START, IN_PACKAGES or DONE
+    private int state = START;
+    // True until the first package of the packages array is read
+    private boolean firstPackage;
+
+    /**
+     * Creates a reader for a json package file
+     * @param in reader for the file, closed by close()
+     */
+    public PackageReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads the next package of the packages array
+     * @return the next package, or null if there are no more packages
+     * @throws IOException if the input cannot be read
+     * @throws ParseException if the input is not valid json
+     */
+    public Package next() throws IOException, ParseException {
+        if (state == START) {
+            expect('{');
+            if (peek() == '}') {
+                read();
+                finish();
+                return null;
+            }
+            readFieldsUntilPackages();
+        }
+        if (state == DONE) return null;
+        // Inside the packages array
+        int c = peek();
+        if (c == ']') {
+            read();
+            // Skip any fields after the packages array
+            if (expectOneOf(',', '}') == ',') {
+                readFieldsUntilPackages();
+            } else {
+                finish();
+            }
+            return null;
+        }
+        if (!firstPackage) expect(',');
+        firstPackage = false;
+        return readPackage();
+    }
+
+    /**
+     * Closes the underlying reader
+     */
+    public void close() throws IOException {
+        in.close();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    /*Private methods*/
+
+    /**
+     * Reads the fields of the top level object until the packages array is
+     * found, or until the object ends
+     */
+    private void readFieldsUntilPackages() throws IOException, ParseException {
+        while (true) {
+            String key = readString();
+            expect(':');
+            if (key.equals("packages") && peek() == '[') {
+                read();
+                state = IN_PACKAGES;
+                firstPackage = true;
+                return;
+            }
+            skipValue();
+            if (expectOneOf(',', '}') == '}') {
+                finish();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Checks that nothing but whitespace is left after the top level object
+     */
+    private void finish() throws IOException, ParseException {
+        int c = peek();
+        if (c != -1) throw unexpected(c);
+        state = DONE;
+    }
+
+    /**
+     * Reads one package object
+     * @return the package, its name is null if the object has no name
+     */
+    private Package readPackage() throws IOException, ParseException {
+        expect('{');
+        String name = null;
+        ArrayList<String> dependencies = new ArrayList<>();
+        if (peek() == '}') {
+            read();
+            return new Package(name, new String[0]);
+        }
+        do {
+            String key = readString();
+            expect(':');
+            if (key.equals("name") && peek() == '"') {
+                name = readString();
+            } else if (key.equals("dependencies") && peek() == '[') {
+                read();
+                if (peek() == ']') {
+                    read();
+                } else {
+                    do {
+                        dependencies.add(readString());
+                    } while (expectOneOf(',', ']') == ',');
+                }
+            } else {
+                skipValue();
+            }
+        } while (expectOneOf(',', '}') == ',');
+        return new Package(name,
+            dependencies.toArray(new String[dependencies.size()]));
+    }
+
+    /**
+     * Skips over any json value. Nested objects and arrays are tracked with
+     * an explicit stack instead of recursion, so deep nesting is safe.
+     */
+    private void skipValue() throws IOException, ParseException {
+        // Kind of each open container, true for an object
+        boolean[] isObject = new boolean[16];
+        int depth = 0;
+        while (true) {
+            int c = peek();
+            if (c == '{' || c == '[') {
+                read();
+                if (depth == isObject.length) {
+                    isObject = Arrays.copyOf(isObject, depth * 2);
+                }
+                isObject[depth++] = c == '{';
+                if (peek() != (c == '{' ? '}' : ']')) {
+                    // Not empty, read its first element
+                    if (c == '{') {
+                        readString();
+                        expect(':');
+                    }
+                    continue;
+                }
+                read();
+                depth--;
+            } else if (c == '"') {
+                readString();
+            } else {
+                skipLiteral();
+            }
+            // A value ended, close the containers that end here
+            while (true) {
+                if (depth == 0) return;
+                int d = read();
+                if (d == ',') {
+                    // Another element in the same container
+                    if (isObject[depth - 1]) {
+                        readString();
+                        expect(':');
+                    }
+                    break;
+                }
+                if (d != (isObject[depth - 1] ? '}' : ']')) throw unexpected(d);
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Skips a number, true, false or null
+     */
+    private void skipLiteral() throws IOException, ParseException {
+        int c = peek();
+        if (c == 't' || c == 'f' || c == 'n') {
+            String word = c == 't' ? "true" : c == 'f' ? "false" : "null";
+            read();
+            for (int i = 1; i < word.length(); i++) {
+                int d = readRaw();
+                if (d != word.charAt(i)) throw unexpected(d);
+            }
+            return;
+        }
+        if (c != '-' && (c < '0' || c > '9')) throw unexpected(c);
+        read();
+        while (true) {
+            c = peekRaw();
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E'
+                || c == '+' || c == '-') {
+                read();
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads a json string, including its quotes
+     * @return the string without quotes and with escapes replaced
+     */
+    private String readString() throws IOException, ParseException {
+        expect('"');
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            int c = readRaw();
+            if (c == -1) throw unexpected(c);
+            if (c == '"') return sb.toString();
+            if (c != '\\') {
+                sb.append((char) c);
+                continue;
+            }
+            c = readRaw();
+            switch (c) {
+                case '"': case '\\': case '/': sb.append((char) c); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'u':
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int d = Character.digit(readRaw(), 16);
+                        if (d < 0) throw unexpected(c);
+                        code = code * 16 + d;
+                    }
+                    sb.append((char) code);
+                    break;
+                default: throw unexpected(c);
+            }
+        }
+    }
+
+    /**
+     * Reads the next non whitespace character and checks it
+     * @param expected the character that should be next
+     */
+    private void expect(char expected) throws IOException, ParseException {
+        int c = read();
+        if (c != expected) throw unexpected(c);
+    }
+
+    /**
+     * Reads the next non whitespace character and checks it is one of two
+     * @return the character read
+     */
+    private int expectOneOf(char a, char b) throws IOException, ParseException {
+        int c = read();
+        if (c != a && c != b) throw unexpected(c);
+        return c;
+    }
+
+    /**
+     * Creates the exception for an unexpected character
+     * @param c the character, -1 for the end of the input
+     */
+    private ParseException unexpected(int c) {
+        if (c == -1) {
+            return new PackageParseException(position,
+                ParseException.ERROR_UNEXPECTED_TOKEN, null);
+        }
+        return new PackageParseException(position - 1,
+            ParseException.ERROR_UNEXPECTED_CHAR, Character.valueOf((char) c));
+    }
+
+    /**
+     * Consumes and returns the next non whitespace character
+     * @return the character or -1 at the end of the input
+     */
+    private int read() throws IOException {
+        int c = peek();
+        if (c != -1) {
+            bufferPos++;
+            position++;
+        }
+        return c;
+    }
+
+    /**
+     * Returns the next non whitespace character without consuming it
+     * @return the character or -1 at the end of the input
+     */
+    private int peek() throws IOException {
+        while (true) {
+            int c = peekRaw();
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                bufferPos++;
+                position++;
+            } else {
+                return c;
+            }
+        }
+    }
+
+    /**
+     * Consumes and returns the next character, whitespace included
+     * @return the character or -1 at the end of the input
+     */
+    private int readRaw() throws IOException {
+        int c = peekRaw();
+        if (c != -1) {
+            bufferPos++;
+            position++;
+        }
+        return c;
+    }
+
+    /**
+     * Returns the next character without consuming it, refilling the buffer
+     * @return the character or -1 at the end of the input
+     */
+    private int peekRaw() throws IOException {
+        if (bufferPos == bufferLen) {
+            bufferLen = in.read(buffer, 0, buffer.length);
+            bufferPos = 0;
+            if (bufferLen <= 0) {
+                bufferLen = 0;
+                return -1;
+            }
+        }
+        return buffer[bufferPos];
+    }
+}
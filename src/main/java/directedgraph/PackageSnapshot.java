@@ -0,0 +1,186 @@
+package directedgraph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Filename:   PackageSnapshot.java
+ * Project:    p4
+ * Authors:    Sam Peaslee
+ *
+ * Reads and writes a dependency graph in a compact binary format, so it
+ * can be loaded without parsing the json file it was built from.
+ *
+ * Layout of a snapshot file, all numbers are big endian:
+ *   int     magic number "PKGS"
+ *   int     format version
+ *   long    last modified time of the json file the graph was built from
+ *   int     V, number of packages
+ *   int     E, number of dependency edges
+ *   int     N, number of bytes in the string table
+ *   int     string offsets, V + 1 entries into the string table
+ *   byte    string table, UTF-8 package names back to back, N bytes
+ *   byte    padding to a multiple of 4 bytes
+ *   int     CSR offsets, V + 1 entries
+ *   int     CSR targets, E entries
+ *   int     number of dependencies (in-degree) of each package, V entries
+ *   int     dependencies of each package, package by package, E entries
+ *   long    CRC32 checksum of everything before it
+ *
+ * The dependencies of each package are kept in the order the graph had
+ * them, so a graph loaded from a snapshot lists them, and gives
+ * installation orders, the same as the graph the snapshot was written
+ * from.
+ *
+ * A snapshot is read through a memory mapped FileChannel, the arrays are
+ * copied out of the mapping in bulk.
+ */
+public class PackageSnapshot {
+
+    // "PKGS" in ASCII
+    private static final int MAGIC = 0x504B4753;
+    private static final int VERSION = 2;
+    // Size of the fixed header in bytes
+    private static final int HEADER = 28;
+
+    /**
+     * Writes a graph to a snapshot file. The file is written to a temporary
+     * file first and then moved into place, so readers never see a partly
+     * written snapshot.
+     * @param frozen graph to write
+     * @param sourceModified last modified time of the json file
+     * @param snapshotPath path of the snapshot file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(FrozenGraph frozen, long sourceModified,
+        String snapshotPath) throws IOException {
+        CompactGraph graph = frozen.compact();
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int[] inDegree = graph.inDegrees();
+        int[] predecessors = frozen.predecessors();
+        int n = graph.order();
+        int e = graph.size();
+        // Encode the names and find where each one starts
+        byte[][] encoded = new byte[n][];
+        int[] stringOffsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            encoded[v] = graph.nameOf(v).getBytes(StandardCharsets.UTF_8);
+            stringOffsets[v + 1] = stringOffsets[v] + encoded[v].length;
+        }
+        int stringBytes = stringOffsets[n];
+        int padding = (4 - (stringBytes & 3)) & 3;
+        long size = HEADER + 4L * (n + 1) + stringBytes + padding
+            + 4L * (n + 1) + 4L * e + 4L * n + 4L * e + 8;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("graph is too large for a snapshot");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(sourceModified);
+        buffer.putInt(n).putInt(e).putInt(stringBytes);
+        buffer.asIntBuffer().put(stringOffsets);
+        buffer.position(buffer.position() + 4 * (n + 1));
+        for (byte[] name : encoded) {
+            buffer.put(name);
+        }
+        buffer.position(buffer.position() + padding);
+        buffer.asIntBuffer().put(offsets, 0, n + 1);
+        buffer.position(buffer.position() + 4 * (n + 1));
+        buffer.asIntBuffer().put(targets, 0, e);
+        buffer.position(buffer.position() + 4 * e);
+        buffer.asIntBuffer().put(inDegree, 0, n);
+        buffer.position(buffer.position() + 4 * n);
+        buffer.asIntBuffer().put(predecessors, 0, e);
+        buffer.position(buffer.position() + 4 * e);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(crc.getValue());
+        // Write to a temporary file next to the snapshot and move it in place
+        Path target = Paths.get(snapshotPath).toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), "snapshot", ".tmp");
+        try {
+            Files.write(temp, buffer.array());
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Reads a graph from a snapshot file
+     * @param snapshotPath path of the snapshot file
+     * @param sourceModified last modified time the json file has now
+     * @return the graph, or null if the snapshot does not exist, was built
+     * from an older version of the json file, or is corrupt
+     * @throws IOException if the file cannot be read
+     */
+    public static FrozenGraph read(String snapshotPath, long sourceModified)
+        throws IOException {
+        Path path = Paths.get(snapshotPath);
+        if (!Files.isRegularFile(path)) return null;
+        try (FileChannel channel =
+            FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER + 8 || size > Integer.MAX_VALUE) return null;
+            MappedByteBuffer map =
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION) return null;
+            // Stale snapshot, the json file changed since it was written
+            if (map.getLong(8) != sourceModified) return null;
+            // Check the checksum before trusting any of the sizes
+            int end = (int) size - 8;
+            CRC32 crc = new CRC32();
+            ByteBuffer body = map.duplicate();
+            body.position(0).limit(end);
+            crc.update(body);
+            if (crc.getValue() != map.getLong(end)) return null;
+            int n = map.getInt(16);
+            int e = map.getInt(20);
+            int stringBytes = map.getInt(24);
+            int padding = (4 - (stringBytes & 3)) & 3;
+            long expected = HEADER + 4L * (n + 1) + stringBytes + padding
+                + 4L * (n + 1) + 4L * e + 4L * n + 4L * e + 8;
+            if (n < 0 || e < 0 || stringBytes < 0 || expected != size) {
+                return null;
+            }
+            // Copy the arrays out of the mapping in bulk
+            int[] stringOffsets = new int[n + 1];
+            map.position(HEADER);
+            map.asIntBuffer().get(stringOffsets);
+            map.position(map.position() + 4 * (n + 1));
+            byte[] strings = new byte[stringBytes];
+            map.get(strings);
+            map.position(map.position() + padding);
+            int[] offsets = new int[n + 1];
+            map.asIntBuffer().get(offsets);
+            map.position(map.position() + 4 * (n + 1));
+            int[] targets = new int[e];
+            map.asIntBuffer().get(targets);
+            map.position(map.position() + 4 * e);
+            int[] inDegree = new int[n];
+            map.asIntBuffer().get(inDegree);
+            map.position(map.position() + 4 * n);
+            int[] predecessors = new int[e];
+            map.asIntBuffer().get(predecessors);
+            String[] names = new String[n];
+            for (int v = 0; v < n; v++) {
+                names[v] = new String(strings, stringOffsets[v],
+                    stringOffsets[v + 1] - stringOffsets[v],
+                    StandardCharsets.UTF_8);
+            }
+            return new FrozenGraph(
+                new CompactGraph(names, offsets, targets, inDegree),
+                predecessors);
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package directedgraph;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Filename:   ReachabilityIndex.java
+ * Project:    p4
+ * Authors:    Sam Peaslee
+ *
+ * Answers "is there a path from u to v" for a CompactGraph without walking
+ * the whole graph, using GRAIL interval labels over the condensed graph.
+ *
+ * Every strongly connected component is collapsed to one node, which
+ * makes the graph acyclic. Each node then gets k interval labels, one per
+ * depth first walk of the condensed graph with the children visited in a
+ * different random order each time. A label is [low, rank], where rank is
+ * the node's post-order number and low is the smallest rank below it. If
+ * u reaches v, every label of v lies inside the matching label of u, so a
+ * single label that does not contain the other answers no right away. The
+ * reversed graph is labelled the same way, which rules out other pairs,
+ * and component numbers are a reverse topological order, which rules out
+ * more pairs for free. Each walk also keeps the interval of ranks in the
+ * spanning tree below each node, and v inside the tree interval of u
+ * answers yes right away. Only when none of these answers does a search
+ * run, from whichever end the labels say reaches less, skipping every
+ * node whose labels rule the other end out.
+ *
+ * The index takes O(k (V + E)) to build and 6k ints per component. Most
+ * queries take O(k). Nothing changes after the constructor, and each
+ * thread searches with its own reusable scratch arrays, so any number of
+ * threads can query one index at once. The scratch arrays of a thread are
+ * shared by every index it queries and grow to the largest one, so
+ * building new indexes as the graph changes leaves nothing behind.
+ */
+public class ReachabilityIndex {
+
+    // Number of interval labels per direction used when none is given
+    public static final int DEFAULT_LABELS = 3;
+
+    // Scratch arrays for the searches of each thread, shared by all
+    // indexes
+    private static final ThreadLocal<Scratch> SCRATCH =
+        ThreadLocal.withInitial(Scratch::new);
+
+    // Components of the graph
+    private final StronglyConnectedComponents components;
+    // Condensed graph in CSR form, the components that the vertices of
+    // component c have edges to are down[downOffsets[c]] up to
+    // down[downOffsets[c + 1] - 1], smallest first
+    private final int[] downOffsets;
+    private final int[] down;
+    // The reversed condensed graph, the components with edges to c,
+    // smallest first
+    private final int[] upOffsets;
+    private final int[] up;
+    // Number of labels per component and direction
+    private final int k;
+    // Labels of component c in the condensed graph, label j starts at
+    // downLabels[3 (c k + j)] and holds low, rank, and the lowest rank in
+    // the spanning tree below c
+    private final int[] downLabels;
+    // Labels of component c in the reversed condensed graph
+    private final int[] upLabels;
+
+    /**
+     * Builds the index with DEFAULT_LABELS labels
+     * @param graph the graph, must not be changed while the index is used
+     * @param components strongly connected components of graph
+     */
+    public ReachabilityIndex(CompactGraph graph,
+        StronglyConnectedComponents components) {
+        this(graph, components, DEFAULT_LABELS, 1);
+    }
+
+    /**
+     * Builds the index
+     * @param graph the graph, must not be changed while the index is used
+     * @param components strongly connected components of graph
+     * @param k number of interval labels per component and direction, more
+     * labels rule out more pairs without a search but take more memory
+     * @param seed seed for the random child orders
+     */
+    public ReachabilityIndex(CompactGraph graph,
+        StronglyConnectedComponents components, int k, long seed) {
+        if (k < 1) throw new IllegalArgumentException("k must be positive");
+        this.components = components;
+        this.k = k;
+        int n = graph.order();
+        int c = components.count();
+        int[] vOffsets = graph.offsets();
+        int[] vTargets = graph.targets();
+        // Group the vertices by component
+        int[] start = new int[c + 1];
+        for (int v = 0; v < n; v++) {
+            start[components.componentOf(v) + 1]++;
+        }
+        for (int i = 0; i < c; i++) {
+            start[i + 1] += start[i];
+        }
+        int[] members = new int[n];
+        int[] fill = new int[c];
+        for (int v = 0; v < n; v++) {
+            int cv = components.componentOf(v);
+            members[start[cv] + fill[cv]++] = v;
+        }
+        // Condense the edges, each edge between two components once
+        int[] last = new int[c];
+        Arrays.fill(last, -1);
+        downOffsets = new int[c + 1];
+        int[] edges = new int[Math.max(1, graph.size())];
+        int e = 0;
+        for (int cu = 0; cu < c; cu++) {
+            for (int i = start[cu]; i < start[cu + 1]; i++) {
+                int u = members[i];
+                for (int j = vOffsets[u]; j < vOffsets[u + 1]; j++) {
+                    int cv = components.componentOf(vTargets[j]);
+                    if (cv != cu && last[cv] != cu) {
+                        last[cv] = cu;
+                        edges[e++] = cv;
+                    }
+                }
+            }
+            downOffsets[cu + 1] = e;
+            Arrays.sort(edges, downOffsets[cu], e);
+        }
+        down = Arrays.copyOf(edges, e);
+        // Reverse the condensed edges, going through the sources in order
+        // keeps each list sorted
+        upOffsets = new int[c + 1];
+        for (int i = 0; i < e; i++) {
+            upOffsets[down[i] + 1]++;
+        }
+        for (int i = 0; i < c; i++) {
+            upOffsets[i + 1] += upOffsets[i];
+        }
+        up = new int[e];
+        Arrays.fill(fill, 0);
+        for (int cu = 0; cu < c; cu++) {
+            for (int i = downOffsets[cu]; i < downOffsets[cu + 1]; i++) {
+                int cv = down[i];
+                up[upOffsets[cv] + fill[cv]++] = cu;
+            }
+        }
+        Random random = new Random(seed);
+        downLabels = label(downOffsets, down, upOffsets, random);
+        upLabels = label(upOffsets, up, downOffsets, random);
+    }
+
+    /**
+     * Checks if there is a path of at least one edge from one vertex to
+     * another
+     * @param from vertex id the path starts at
+     * @param to vertex id the path ends at
+     * @return true if to can be reached from from, a vertex reaches
+     * itself only if it is on a cycle
+     */
+    public boolean reaches(int from, int to) {
+        if (from == to) return components.isOnCycle(from);
+        return componentReaches(components.componentOf(from),
+            components.componentOf(to));
+    }
+
+    /**
+     * Checks if a component of the condensed graph reaches another one
+     */
+    private boolean componentReaches(int cu, int cv) {
+        if (cu == cv) return true;
+        if (!mayReach(cu, cv)) return false;
+        if (inTree(downLabels, cu, cv) || inTree(upLabels, cv, cu)) {
+            return true;
+        }
+        // Search from the end that reaches fewer ranks
+        if (width(downLabels, cu) <= width(upLabels, cv)) {
+            return search(cu, cv, true);
+        }
+        return search(cv, cu, false);
+    }
+
+    /**
+     * Searches the condensed graph, or the reversed one, from one
+     * component for another, skipping components that can not be on a
+     * path between them. The next components are pushed so the one closest
+     * to the target in topological order is looked at first, which usually
+     * gets to the target or a tree above it quickly.
+     * @param from component to search from
+     * @param target component to look for
+     * @param downward search the condensed graph if true, the reversed one
+     * if false
+     */
+    private boolean search(int from, int target, boolean downward) {
+        int[] offsets = downward ? downOffsets : upOffsets;
+        int[] next = downward ? down : up;
+        Scratch s = SCRATCH.get();
+        int epoch = s.nextEpoch(offsets.length - 1);
+        int sp = 0;
+        s.stack[sp++] = from;
+        s.seen[from] = epoch;
+        while (sp > 0) {
+            int c = s.stack[--sp];
+            int first = offsets[c];
+            int end = offsets[c + 1];
+            for (int x = 0; x < end - first; x++) {
+                // Largest first going down, smallest first going up, so
+                // the one closest to the target is pushed last
+                int w = next[downward ? end - 1 - x : first + x];
+                if (w == target) return true;
+                if (s.seen[w] == epoch) continue;
+                s.seen[w] = epoch;
+                int u = downward ? w : target;
+                int v = downward ? target : w;
+                if (!mayReach(u, v)) continue;
+                if (inTree(downLabels, u, v) || inTree(upLabels, v, u)) {
+                    return true;
+                }
+                s.stack[sp++] = w;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns false if the order of the components or one of the labels
+     * shows cu can not reach cv
+     */
+    private boolean mayReach(int cu, int cv) {
+        // Edges go from higher to lower component numbers
+        if (cu < cv) return false;
+        return inLabels(downLabels, cu, cv) && inLabels(upLabels, cv, cu);
+    }
+
+    /**
+     * Returns true if every label of inner lies inside the matching label
+     * of outer
+     */
+    private boolean inLabels(int[] labels, int outer, int inner) {
+        int a = 3 * k * outer;
+        int b = 3 * k * inner;
+        for (int j = 0; j < 3 * k; j += 3) {
+            if (labels[b + j] < labels[a + j]
+                || labels[b + j + 1] > labels[a + j + 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if inner is below outer in the spanning tree of one of
+     * the walks, so outer reaches inner
+     */
+    private boolean inTree(int[] labels, int outer, int inner) {
+        int a = 3 * k * outer;
+        int b = 3 * k * inner;
+        for (int j = 0; j < 3 * k; j += 3) {
+            int rank = labels[b + j + 1];
+            if (labels[a + j + 2] <= rank && rank <= labels[a + j + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Number of ranks the first label of a component covers, roughly how
+     * many components it reaches
+     */
+    private int width(int[] labels, int c) {
+        int a = 3 * k * c;
+        return labels[a + 1] - labels[a];
+    }
+
+    /**
+     * Labels every component of a graph with k depth first walks, each
+     * starting from the roots in a random order and visiting the children
+     * of each component starting from a random one
+     * @param offsets CSR offsets of the graph
+     * @param targets CSR targets of the graph
+     * @param reverseOffsets CSR offsets of the reversed graph, used to find
+     * the roots
+     * @param random source of the random orders
+     * @return the labels, see downLabels
+     */
+    private int[] label(int[] offsets, int[] targets, int[] reverseOffsets,
+        Random random) {
+        int c = offsets.length - 1;
+        int[] labels = new int[3 * k * c];
+        // Every component is reached from a component with nothing
+        // pointing to it
+        int numRoots = 0;
+        int[] roots = new int[c];
+        for (int i = 0; i < c; i++) {
+            if (reverseOffsets[i] == reverseOffsets[i + 1]) {
+                roots[numRoots++] = i;
+            }
+        }
+        boolean[] visited = new boolean[c];
+        // Explicit call stack, the component, the child it started at, the
+        // number of children looked at so far, and the next rank when the
+        // component was entered
+        int[] callNode = new int[c];
+        int[] callFirst = new int[c];
+        int[] callDone = new int[c];
+        int[] callRank = new int[c];
+        for (int j = 0; j < k; j++) {
+            for (int i = numRoots - 1; i > 0; i--) {
+                int swap = random.nextInt(i + 1);
+                int t = roots[i];
+                roots[i] = roots[swap];
+                roots[swap] = t;
+            }
+            Arrays.fill(visited, false);
+            int rank = 0;
+            for (int r = 0; r < numRoots; r++) {
+                int root = roots[r];
+                visited[root] = true;
+                int csp = 0;
+                callNode[csp] = root;
+                callFirst[csp] = firstChild(offsets, root, random);
+                callDone[csp] = 0;
+                callRank[csp] = rank;
+                csp++;
+                while (csp > 0) {
+                    int node = callNode[csp - 1];
+                    int degree = offsets[node + 1] - offsets[node];
+                    if (callDone[csp - 1] < degree) {
+                        int child = targets[offsets[node] + (callFirst[csp - 1]
+                            + callDone[csp - 1]++) % degree];
+                        if (!visited[child]) {
+                            visited[child] = true;
+                            callNode[csp] = child;
+                            callFirst[csp] = firstChild(offsets, child, random);
+                            callDone[csp] = 0;
+                            callRank[csp] = rank;
+                            csp++;
+                        }
+                    } else {
+                        // All children are labelled, the graph has no
+                        // cycles so none of them is still being walked
+                        csp--;
+                        int at = 3 * (node * k + j);
+                        int low = rank;
+                        for (int i = offsets[node]; i < offsets[node + 1]; i++) {
+                            low = Math.min(low,
+                                labels[3 * (targets[i] * k + j)]);
+                        }
+                        labels[at] = low;
+                        labels[at + 1] = rank++;
+                        labels[at + 2] = callRank[csp];
+                    }
+                }
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * Random child of a component to start visiting its children from
+     */
+    private static int firstChild(int[] offsets, int node, Random random) {
+        int degree = offsets[node + 1] - offsets[node];
+        return degree > 1 ? random.nextInt(degree) : 0;
+    }
+
+    /**
+     * Reusable arrays for search. A component has been seen in the current
+     * search if its entry in seen is the current epoch, so the arrays never
+     * need clearing. They grow to the most components searched.
+     */
+    private static class Scratch {
+        int[] stack = new int[0];
+        int[] seen = new int[0];
+        int epoch;
+
+        /**
+         * Starts a search of a graph of the given number of components
+         * @return the epoch of the search
+         */
+        int nextEpoch(int components) {
+            if (seen.length < components) {
+                stack = new int[components];
+                seen = new int[components];
+                epoch = 0;
+            }
+            if (++epoch == 0) {
+                Arrays.fill(seen, 0);
+                epoch = 1;
+            }
+            return epoch;
+        }
+    }
+}
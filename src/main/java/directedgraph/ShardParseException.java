@@ -0,0 +1,36 @@
+package directedgraph;
+
+import org.json.simple.parser.ParseException;
+
+@SuppressWarnings("serial")
+public class ShardParseException extends ParseException {
+
+    // Path of the json shard that could not be parsed
+    private String shard;
+
+    public ShardParseException(String shard, ParseException cause) {
+        super(cause.getPosition(), cause.getErrorType(),
+            cause.getUnexpectedObject());
+        this.shard = shard;
+        initCause(cause);
+    }
+
+    /**
+     * Returns the path of the json shard that could not be parsed
+     * @return path of the shard
+     */
+    public String getShard() {
+        return shard;
+    }
+
+    @Override
+    public String getMessage() {
+        // The cause knows the full position of a PackageParseException
+        return shard + ": " + getCause().toString();
+    }
+
+    @Override
+    public String toString() {
+        return getMessage();
+    }
+}
@@ -0,0 +1,216 @@
+package directedgraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Filename:   StronglyConnectedComponents.java
+ * Project:    p4
+ * Authors:    Sam Peaslee
+ *
+ * Finds the strongly connected components of a CompactGraph with Tarjan's
+ * algorithm in a single O(V + E) pass.
+ *
+ * A vertex is on a cycle if its component has more than one vertex, or if
+ * it has an edge to itself. After the pass both the component of each
+ * vertex and whether it is on a cycle can be looked up in constant time.
+ *
+ * Components are numbered in the order Tarjan's algorithm finishes them,
+ * which is a reverse topological order of the condensed graph: for every
+ * edge u -> v, componentOf(u) >= componentOf(v).
+ *
+ * The traversal uses explicit stacks instead of recursion so deep
+ * dependency chains do not overflow the thread stack.
+ */
+public class StronglyConnectedComponents {
+
+    // Graph the components were computed for
+    private CompactGraph graph;
+    // Component of each vertex id
+    private int[] component;
+    // Number of vertices in each component
+    private int[] componentSize;
+    // True for each vertex that is on a cycle
+    private boolean[] onCycle;
+    // Number of components
+    private int numComponents;
+
+    /**
+     * Computes the strongly connected components of a graph
+     * @param graph the graph, it should not be changed while this object
+     * is in use since the results are indexed by vertex id
+     */
+    public StronglyConnectedComponents(CompactGraph graph) {
+        this.graph = graph;
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int n = graph.order();
+        component = new int[n];
+        onCycle = new boolean[n];
+        // Order in which each vertex was discovered, -1 if not yet visited
+        int[] index = new int[n];
+        // Smallest discovery index reachable from each vertex
+        int[] low = new int[n];
+        boolean[] onStack = new boolean[n];
+        // Tarjan's stack of vertices that are not assigned a component yet
+        int[] stack = new int[n];
+        int sp = 0;
+        // Explicit call stack, the vertex and the next edge to look at
+        int[] callVertex = new int[n];
+        int[] callEdge = new int[n];
+        int csp = 0;
+        int[] sizes = new int[Math.max(n, 1)];
+        Arrays.fill(index, -1);
+        int counter = 0;
+        for (int start = 0; start < n; start++) {
+            if (index[start] != -1) continue;
+            // Visit the start vertex
+            index[start] = low[start] = counter++;
+            stack[sp++] = start;
+            onStack[start] = true;
+            callVertex[csp] = start;
+            callEdge[csp] = offsets[start];
+            csp++;
+            while (csp > 0) {
+                int v = callVertex[csp - 1];
+                if (callEdge[csp - 1] < offsets[v + 1]) {
+                    // Look at the next successor of v
+                    int w = targets[callEdge[csp - 1]++];
+                    if (w == v) {
+                        onCycle[v] = true;
+                    }
+                    if (index[w] == -1) {
+                        // Not visited yet, visit it as if calling recursively
+                        index[w] = low[w] = counter++;
+                        stack[sp++] = w;
+                        onStack[w] = true;
+                        callVertex[csp] = w;
+                        callEdge[csp] = offsets[w];
+                        csp++;
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                } else {
+                    // All successors of v are done, return from the "call"
+                    csp--;
+                    if (low[v] == index[v]) {
+                        // v is the root of a component, pop its members
+                        int w;
+                        do {
+                            w = stack[--sp];
+                            onStack[w] = false;
+                            component[w] = numComponents;
+                            sizes[numComponents]++;
+                        } while (w != v);
+                        numComponents++;
+                    }
+                    if (csp > 0) {
+                        int u = callVertex[csp - 1];
+                        low[u] = Math.min(low[u], low[v]);
+                    }
+                }
+            }
+        }
+        componentSize = Arrays.copyOf(sizes, numComponents);
+        for (int v = 0; v < n; v++) {
+            if (componentSize[component[v]] > 1) {
+                onCycle[v] = true;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of strongly connected components
+     * @return number of components
+     */
+    public int count() {
+        return numComponents;
+    }
+
+    /**
+     * Returns the component of a vertex
+     * @param id vertex id
+     * @return component number, between 0 and count() - 1
+     */
+    public int componentOf(int id) {
+        return component[id];
+    }
+
+    /**
+     * Returns the number of vertices in a component
+     * @param c component number
+     * @return number of vertices in the component
+     */
+    public int sizeOf(int c) {
+        return componentSize[c];
+    }
+
+    /**
+     * Checks if a vertex is on a cycle
+     * @param id vertex id
+     * @return true if the vertex can reach itself
+     */
+    public boolean isOnCycle(int id) {
+        return onCycle[id];
+    }
+
+    /**
+     * Checks if the graph has any cycle
+     * @return true if some vertex is on a cycle
+     */
+    public boolean hasCycle() {
+        for (boolean b : onCycle) {
+            if (b) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Finds a cycle that goes through a vertex.
+     * Uses a BFS that stays inside the vertex's component, so the
+     * cycle returned is a shortest one through the vertex.
+     * @param id vertex id
+     * @return the vertices on the cycle in edge order, starting with the
+     * given vertex, the last vertex has an edge back to the first.
+     * Empty if the vertex is not on a cycle.
+     */
+    public List<String> cycleThrough(int id) {
+        List<String> cycle = new ArrayList<>();
+        if (!onCycle[id]) return cycle;
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int c = component[id];
+        // Parent of each vertex in the BFS tree, -1 if not reached
+        int[] parent = new int[component.length];
+        Arrays.fill(parent, -1);
+        int[] queue = new int[componentSize[c]];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = id;
+        int last = -1;
+        while (head < tail && last == -1) {
+            int v = queue[head++];
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                int w = targets[i];
+                if (w == id) {
+                    // Found the edge back to the start
+                    last = v;
+                    break;
+                }
+                if (component[w] == c && parent[w] == -1) {
+                    parent[w] = v;
+                    queue[tail++] = w;
+                }
+            }
+        }
+        // Walk the BFS tree back from the last vertex to the start
+        for (int v = last; v != id; v = parent[v]) {
+            cycle.add(graph.nameOf(v));
+        }
+        cycle.add(graph.nameOf(id));
+        Collections.reverse(cycle);
+        return cycle;
+    }
+}
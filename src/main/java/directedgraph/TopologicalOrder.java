@@ -0,0 +1,244 @@
+package directedgraph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Filename:   TopologicalOrder.java
+ * Project:    p4
+ * Authors:    Sam Peaslee
+ *
+ * Topological order of an acyclic graph that is kept up to date as edges
+ * and vertices are added and removed, instead of being sorted again.
+ *
+ * Uses the Pearce-Kelly algorithm. Each vertex has a position, and every
+ * edge goes from a lower position to a higher one. A new edge from u to v
+ * that already agrees with the order changes nothing. Otherwise only the
+ * vertices placed between v and u are searched: the ones v reaches going
+ * forward and the ones that reach u going backward. If the forward search
+ * reaches u the edge would close a cycle. If not, the two sets of vertices
+ * are moved, the backward set before the forward set, into the positions
+ * they held between them. An update costs time proportional to that
+ * region, not to the whole graph.
+ *
+ * Removing an edge never breaks a topological order. A removed vertex
+ * leaves a hole in the positions, which are packed once half of them are
+ * holes.
+ *
+ * The order reads the edges of the graph it was made for, so every edge
+ * change must go through addEdge before it is made to the graph.
+ */
+class TopologicalOrder {
+
+    // Graph the order is kept for
+    private final Graph graph;
+    // Position of each vertex
+    private final HashMap<String, Integer> positions;
+    // Vertex at each position, null where a vertex was removed
+    private String[] at;
+    // Number of positions used, holes included
+    private int end;
+    // Number of holes before end
+    private int holes;
+
+    /**
+     * Creates the order of a graph from a topological order of it
+     * @param graph acyclic graph, read but never changed
+     * @param order every vertex of graph once, each before its successors
+     */
+    TopologicalOrder(Graph graph, List<String> order) {
+        this.graph = graph;
+        positions = new HashMap<>(order.size() * 2);
+        at = new String[Math.max(16, order.size())];
+        for (String v : order) {
+            addVertex(v);
+        }
+    }
+
+    /**
+     * Returns the vertices in topological order
+     * @return new list of every vertex, each before its successors
+     */
+    List<String> toList() {
+        List<String> order = new ArrayList<>(end - holes);
+        for (int i = 0; i < end; i++) {
+            if (at[i] != null) order.add(at[i]);
+        }
+        return order;
+    }
+
+    /**
+     * Returns the position of a vertex, the vertices of every edge are in
+     * increasing position
+     * @param vertex vertex of the graph
+     * @return position of vertex, -1 if it is not in the order
+     */
+    int positionOf(String vertex) {
+        Integer position = positions.get(vertex);
+        return position == null ? -1 : position;
+    }
+
+    /**
+     * Adds a vertex with no edges after every other vertex, nothing
+     * happens if it is already in the order
+     * @param vertex vertex to add
+     */
+    void addVertex(String vertex) {
+        if (positions.containsKey(vertex)) return;
+        if (end == at.length) {
+            at = Arrays.copyOf(at, at.length * 2);
+        }
+        at[end] = vertex;
+        positions.put(vertex, end++);
+    }
+
+    /**
+     * Takes a vertex out of the order, the graph removes its edges
+     * @param vertex vertex to remove
+     */
+    void removeVertex(String vertex) {
+        Integer position = positions.remove(vertex);
+        if (position == null) return;
+        at[position] = null;
+        holes++;
+        if (holes > 16 && holes > end / 2) {
+            pack();
+        }
+    }
+
+    /**
+     * Moves vertices so the edge from u to v can be added to the graph,
+     * must be called before the edge is added. Both vertices must already
+     * be in the order.
+     * @param u vertex the edge comes from
+     * @param v vertex the edge goes to
+     * @return null if the order now allows the edge, or the vertices of the
+     * cycle the edge would close, from v to u following edges, in which
+     * case nothing is changed
+     */
+    List<String> addEdge(String u, String v) {
+        int lower = positions.get(v);
+        int upper = positions.get(u);
+        if (u.equals(v)) return Collections.singletonList(u);
+        // The edge already agrees with the order
+        if (lower > upper) return null;
+        // Vertices reached from v that are placed before u, each mapped to
+        // the vertex it was reached from
+        HashMap<String, String> forward = new HashMap<>();
+        forward.put(v, null);
+        ArrayDeque<String> stack = new ArrayDeque<>();
+        stack.push(v);
+        while (!stack.isEmpty()) {
+            String w = stack.pop();
+            for (String succ : graph.getAdjacentVerticesOf(w)) {
+                if (succ.equals(u)) {
+                    // The new edge closes a cycle, walk back to v
+                    List<String> cycle = new ArrayList<>();
+                    cycle.add(u);
+                    for (String x = w; x != null; x = forward.get(x)) {
+                        cycle.add(x);
+                    }
+                    Collections.reverse(cycle);
+                    return cycle;
+                }
+                if (positions.get(succ) < upper
+                    && !forward.containsKey(succ)) {
+                    forward.put(succ, w);
+                    stack.push(succ);
+                }
+            }
+        }
+        // Vertices that reach u and are placed after v
+        HashSet<String> backward = new HashSet<>();
+        backward.add(u);
+        stack.push(u);
+        while (!stack.isEmpty()) {
+            String w = stack.pop();
+            for (String pred : graph.getPredecessorsOf(w)) {
+                if (positions.get(pred) > lower && backward.add(pred)) {
+                    stack.push(pred);
+                }
+            }
+        }
+        reorder(new ArrayList<>(backward), new ArrayList<>(forward.keySet()));
+        return null;
+    }
+
+    /**
+     * Checks if there is a path between two vertices of a graph that
+     * follows edges, for graphs that have cycles and so no order
+     * @param graph graph to search
+     * @param from first vertex of the path
+     * @param to last vertex of the path
+     * @return vertices of a path from from to to, or null if there is none
+     */
+    static List<String> pathBetween(GraphADT graph, String from, String to) {
+        HashMap<String, String> reachedFrom = new HashMap<>();
+        reachedFrom.put(from, null);
+        ArrayDeque<String> stack = new ArrayDeque<>();
+        stack.push(from);
+        while (!stack.isEmpty()) {
+            String w = stack.pop();
+            if (w.equals(to)) {
+                List<String> path = new ArrayList<>();
+                for (String x = w; x != null; x = reachedFrom.get(x)) {
+                    path.add(x);
+                }
+                Collections.reverse(path);
+                return path;
+            }
+            for (String succ : graph.getAdjacentVerticesOf(w)) {
+                if (!reachedFrom.containsKey(succ)) {
+                    reachedFrom.put(succ, w);
+                    stack.push(succ);
+                }
+            }
+        }
+        return null;
+    }
+
+    ////////////////////////////////////////////////////////////////////////
+    /*Private methods*/
+    /**
+     * Places the backward vertices before the forward vertices, keeping the
+     * order within each set, using only the positions the two sets held
+     */
+    private void reorder(List<String> backward, List<String> forward) {
+        Comparator<String> byPosition =
+            Comparator.comparingInt(positions::get);
+        backward.sort(byPosition);
+        forward.sort(byPosition);
+        int[] slots = new int[backward.size() + forward.size()];
+        int i = 0;
+        for (String w : backward) slots[i++] = positions.get(w);
+        for (String w : forward) slots[i++] = positions.get(w);
+        Arrays.sort(slots);
+        i = 0;
+        for (String w : backward) place(w, slots[i++]);
+        for (String w : forward) place(w, slots[i++]);
+    }
+
+    private void place(String vertex, int position) {
+        at[position] = vertex;
+        positions.put(vertex, position);
+    }
+
+    /**
+     * Removes the holes left by removed vertices
+     */
+    private void pack() {
+        int used = 0;
+        for (int i = 0; i < end; i++) {
+            if (at[i] != null) place(at[i], used++);
+        }
+        Arrays.fill(at, used, end, null);
+        end = used;
+        holes = 0;
+    }
+}
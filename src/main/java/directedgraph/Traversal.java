@@ -0,0 +1,257 @@
+package directedgraph;
+
+import java.util.Arrays;
+
+/**
+ * Filename:   Traversal.java
+ * Project:    p4
+ * Authors:    Sam Peaslee
+ *
+ * Breadth first and depth first walks of a FrozenGraph that allocate
+ * nothing once they are warmed up.
+ *
+ * Each thread has one set of scratch arrays, a stack, a queue, and a
+ * visited stamp per vertex, that is reused by every walk on that thread.
+ * A vertex has been visited if its stamp is the epoch of the current
+ * traversal, so starting a traversal only moves the epoch on and the
+ * arrays never need clearing. The arrays grow to the largest graph walked
+ * on the thread and stay that size.
+ *
+ * A traversal is started with begin() and closed when done, usually with
+ * try-with-resources. Every walk made before it is closed shares the same
+ * visited vertices, so one walk can be stopped at the vertices marked by
+ * an earlier one. A visitor may start a traversal of its own, which gets
+ * new arrays instead of the ones in use.
+ *
+ *     try (Traversal walk = Traversal.begin(graph)) {
+ *         walk.depthFirst(start, Traversal.Direction.PREDECESSORS, visitor);
+ *     }
+ */
+public final class Traversal implements AutoCloseable {
+
+    /**
+     * Which edges a walk follows
+     */
+    public enum Direction {
+        // From a vertex to the vertices it has an edge to
+        SUCCESSORS,
+        // From a vertex to the vertices that have an edge to it
+        PREDECESSORS
+    }
+
+    /**
+     * Called by a walk for the vertices it reaches
+     * @param <E> exception the visitor may throw, which stops the walk
+     */
+    public interface Visitor<E extends Exception> {
+        /**
+         * Called once when a vertex is first reached, it is already
+         * marked visited
+         * @param vertex id of the vertex
+         * @return true to walk on past the vertex, false to stop there
+         */
+        boolean enter(int vertex) throws E;
+
+        /**
+         * Called by depthFirst once every vertex reached through a vertex
+         * has been left, not called for vertices enter stopped at
+         * @param vertex id of the vertex
+         */
+        default void leave(int vertex) throws E {
+        }
+    }
+
+    // Scratch arrays of each thread
+    private static final ThreadLocal<Traversal> CURRENT =
+        ThreadLocal.withInitial(Traversal::new);
+
+    // Graph being walked
+    private FrozenGraph graph;
+    // A vertex was visited in this traversal if its stamp is epoch
+    private int[] stamps = new int[0];
+    private int epoch;
+    // Vertices being walked by depthFirst, and for each the index of its
+    // next edge
+    private int[] stack = new int[16];
+    private int[] next = new int[16];
+    // Vertices reached by breadthFirst whose edges are not followed yet
+    private int[] queue = new int[16];
+    // True from begin() until close()
+    private boolean inUse;
+
+    private Traversal() {
+    }
+
+    /**
+     * Starts a traversal of a graph with no vertex visited, using the
+     * scratch arrays of this thread
+     * @param graph graph to walk, must not change during the traversal
+     * @return the traversal, to be closed when done
+     */
+    public static Traversal begin(FrozenGraph graph) {
+        Traversal traversal = CURRENT.get();
+        // A visitor started another traversal, give it its own arrays
+        if (traversal.inUse) traversal = new Traversal();
+        traversal.start(graph);
+        return traversal;
+    }
+
+    /**
+     * Checks if a vertex was visited in this traversal
+     * @param vertex id of the vertex
+     * @return true if a walk reached the vertex or it was marked
+     */
+    public boolean isVisited(int vertex) {
+        return stamps[vertex] == epoch;
+    }
+
+    /**
+     * Marks a vertex visited, so the walks of this traversal neither
+     * enter it nor go past it
+     * @param vertex id of the vertex
+     */
+    public void mark(int vertex) {
+        stamps[vertex] = epoch;
+    }
+
+    /**
+     * Walks the graph breadth first from a vertex, calling enter for each
+     * vertex reached that was not visited before, nearest vertices first
+     * @param start id of the vertex to start at, nothing happens if it was
+     * visited before
+     * @param direction which edges to follow
+     * @param visitor called for each vertex reached
+     * @throws E if the visitor throws it, the walk stops
+     */
+    public <E extends Exception> void breadthFirst(int start,
+        Direction direction, Visitor<E> visitor) throws E {
+        if (isVisited(start)) return;
+        int[] offsets = offsets(direction);
+        int[] targets = targets(direction);
+        mark(start);
+        if (!visitor.enter(start)) return;
+        int[] queue = this.queue;
+        queue[0] = start;
+        int head = 0;
+        int tail = 1;
+        while (head < tail) {
+            int current = queue[head++];
+            for (int i = offsets[current]; i < offsets[current + 1]; i++) {
+                int target = targets[i];
+                if (isVisited(target)) continue;
+                mark(target);
+                if (!visitor.enter(target)) continue;
+                if (tail == queue.length) {
+                    queue = this.queue = Arrays.copyOf(queue, tail * 2);
+                }
+                queue[tail++] = target;
+            }
+        }
+    }
+
+    /**
+     * Walks the graph depth first from a vertex, calling enter for each
+     * vertex reached that was not visited before, and leave once every
+     * vertex reached through it was left. Edges are followed in the order
+     * of the graph's lists, so the vertices are left in post-order.
+     * @param start id of the vertex to start at, nothing happens if it was
+     * visited before
+     * @param direction which edges to follow
+     * @param visitor called for each vertex reached
+     * @throws E if the visitor throws it, the walk stops
+     */
+    public <E extends Exception> void depthFirst(int start,
+        Direction direction, Visitor<E> visitor) throws E {
+        if (isVisited(start)) return;
+        int[] offsets = offsets(direction);
+        int[] targets = targets(direction);
+        mark(start);
+        if (!visitor.enter(start)) return;
+        // The vertex being walked, the index of its next edge and the
+        // index after its last edge, the vertices below it are on stack
+        int current = start;
+        int i = skipVisited(targets, offsets[start], offsets[start + 1]);
+        int end = offsets[start + 1];
+        int depth = 0;
+        while (true) {
+            if (i == end) {
+                visitor.leave(current);
+                if (depth == 0) return;
+                depth--;
+                current = stack[depth];
+                i = next[depth];
+                end = offsets[current + 1];
+                continue;
+            }
+            int target = targets[i++];
+            if (isVisited(target)) continue;
+            mark(target);
+            if (!visitor.enter(target)) continue;
+            int first = skipVisited(targets, offsets[target],
+                offsets[target + 1]);
+            // Nothing new past the target, leave it right away
+            if (first == offsets[target + 1]) {
+                visitor.leave(target);
+                continue;
+            }
+            if (depth == stack.length) {
+                stack = Arrays.copyOf(stack, depth * 2);
+                next = Arrays.copyOf(next, depth * 2);
+            }
+            stack[depth] = current;
+            next[depth] = i;
+            depth++;
+            current = target;
+            i = first;
+            end = offsets[target + 1];
+        }
+    }
+
+    /**
+     * Ends the traversal so its arrays can be reused by the next one
+     */
+    @Override
+    public void close() {
+        inUse = false;
+        graph = null;
+    }
+
+    ////////////////////////////////////////////////////////////////////////
+    /*Private methods*/
+    /**
+     * Makes the arrays ready for a new traversal of graph
+     */
+    private void start(FrozenGraph graph) {
+        this.graph = graph;
+        inUse = true;
+        if (stamps.length < graph.order()) {
+            stamps = new int[graph.order()];
+            epoch = 0;
+        }
+        if (++epoch == 0) {
+            Arrays.fill(stamps, 0);
+            epoch = 1;
+        }
+    }
+
+    /**
+     * Index of the first edge from first up to end whose target was not
+     * visited, or end if there is none
+     */
+    private int skipVisited(int[] targets, int first, int end) {
+        while (first < end && isVisited(targets[first])) {
+            first++;
+        }
+        return first;
+    }
+
+    private int[] offsets(Direction direction) {
+        return direction == Direction.SUCCESSORS
+            ? graph.compact().offsets() : graph.predecessorOffsets();
+    }
+
+    private int[] targets(Direction direction) {
+        return direction == Direction.SUCCESSORS
+            ? graph.compact().targets() : graph.predecessors();
+    }
+}
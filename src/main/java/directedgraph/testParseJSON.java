@@ -1,3 +1,5 @@
+package directedgraph;
+
 
 import java.io.FileReader;
 import java.util.ArrayList;
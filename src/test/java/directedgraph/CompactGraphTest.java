@@ -0,0 +1,219 @@
+package directedgraph;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Filename:   CompactGraphTest.java
+ * Project:    p4
+ * Authors:    Sam Peaslee
+ *
+ * Description: JUnit test that tests the functionality of the CompactGraph
+ * class
+ *
+ */
+class CompactGraphTest {
+
+    CompactGraph graph;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        graph = new CompactGraph();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        graph = null;
+    }
+
+    /**
+     * Add vertices and edges, check the vertices, edges and counts
+     * Graph will look like:
+     * A -> B -> C
+     *  \        ^
+     *   ------>/
+     */
+    @Test
+    void test_add_edges_check_graph() {
+        graph.addEdge("A", "B");
+        graph.addEdge("B", "C");
+        graph.addEdge("A", "C");
+        graph.addVertex("D");
+        Set<String> vertices = graph.getAllVertices();
+        if (vertices.size() != 4 | graph.order() != 4 | graph.size() != 3) {
+            fail();
+        }
+        List<String> adjacent = graph.getAdjacentVerticesOf("A");
+        if (adjacent.size() != 2 | !adjacent.get(0).equals("B")
+            | !adjacent.get(1).equals("C")) {
+            fail();
+        }
+        if (!graph.getAdjacentVerticesOf("C").isEmpty()
+            | !graph.getAdjacentVerticesOf("D").isEmpty()
+            | !graph.getAdjacentVerticesOf("E").isEmpty()) {
+            fail();
+        }
+    }
+
+    /**
+     * Null vertices and duplicate edges should be ignored
+     */
+    @Test
+    void test_null_and_duplicate_edges() {
+        graph.addVertex(null);
+        graph.addEdge(null, "A");
+        graph.addEdge("A", null);
+        if (graph.order() != 0 | graph.size() != 0) {
+            fail();
+        }
+        graph.addEdge("A", "B");
+        graph.addEdge("A", "B");
+        graph.compact();
+        graph.addEdge("A", "B");
+        if (graph.order() != 2 | graph.size() != 1) {
+            fail();
+        }
+    }
+
+    /**
+     * Buffered adds and removes of the same edge are applied in order
+     */
+    @Test
+    void test_buffered_add_remove_add() {
+        graph.addEdge("A", "B");
+        graph.addEdge("A", "C");
+        graph.removeEdge("A", "B");
+        graph.removeEdge("A", "B");
+        if (graph.size() != 1) {
+            fail();
+        }
+        graph.removeEdge("A", "C");
+        graph.addEdge("A", "C");
+        graph.addEdge("A", "B");
+        List<String> adjacent = graph.getAdjacentVerticesOf("A");
+        // Edges that are added back go to the end of the list
+        if (adjacent.size() != 2 | !adjacent.get(0).equals("C")
+            | !adjacent.get(1).equals("B")) {
+            fail();
+        }
+    }
+
+    /*
+     * Remove a vertex, its edges should be removed and the remaining
+     * vertices should keep dense ids
+     * Before delete:
+     *  A --> B --> D
+     *   \   /
+     *    C
+     * After Delete:
+     *   A      D
+     *    \
+     *     C
+     */
+    @Test
+    void test_remove_vertex() {
+        graph.addEdge("A", "B");
+        graph.addEdge("B", "C");
+        graph.addEdge("A", "C");
+        graph.addEdge("B", "D");
+        graph.removeVertex("B");
+        graph.removeVertex("B");
+        graph.removeVertex(null);
+        if (graph.order() != 3 | graph.size() != 1) {
+            fail();
+        }
+        if (graph.getAllVertices().contains("B")) {
+            fail();
+        }
+        List<String> adjacent = graph.getAdjacentVerticesOf("A");
+        if (adjacent.size() != 1 | !adjacent.contains("C")) {
+            fail();
+        }
+        for (String vertex : graph.getAllVertices()) {
+            int id = graph.idOf(vertex);
+            if (id < 0 | id >= graph.order() | !graph.nameOf(id).equals(vertex)) {
+                fail();
+            }
+        }
+        // Add B back, its old edges should be gone
+        graph.addEdge("D", "B");
+        if (graph.order() != 4 | graph.size() != 2
+            | !graph.getAdjacentVerticesOf("B").isEmpty()) {
+            fail();
+        }
+    }
+
+    /**
+     * Check the CSR arrays and in-degrees of a chain
+     * 0 -> 1 -> 2 ... -> 20
+     */
+    @Test
+    void test_csr_arrays_of_chain() {
+        for (int i = 0; i < 20; i++) {
+            graph.addEdge("" + i, "" + (i + 1));
+        }
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int[] inDegree = graph.inDegrees();
+        if (graph.order() != 21 | graph.size() != 20) {
+            fail();
+        }
+        for (int i = 0; i < 20; i++) {
+            int id = graph.idOf("" + i);
+            if (offsets[id + 1] - offsets[id] != 1) {
+                fail();
+            }
+            if (!graph.nameOf(targets[offsets[id]]).equals("" + (i + 1))) {
+                fail();
+            }
+            if (inDegree[graph.idOf("" + (i + 1))] != 1) {
+                fail();
+            }
+        }
+        if (inDegree[graph.idOf("0")] != 0) {
+            fail();
+        }
+    }
+
+    /**
+     * Apply the same random mutations to a Graph and a CompactGraph,
+     * both graphs should end up with the same edges
+     */
+    @Test
+    void test_matches_graph() {
+        Graph expected = new Graph();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            String v1 = "" + random.nextInt(50);
+            String v2 = "" + random.nextInt(50);
+            int op = random.nextInt(10);
+            if (op < 6) {
+                expected.addEdge(v1, v2);
+                graph.addEdge(v1, v2);
+            } else if (op < 9) {
+                expected.removeEdge(v1, v2);
+                graph.removeEdge(v1, v2);
+            } else {
+                expected.removeVertex(v1);
+                graph.removeVertex(v1);
+            }
+            if (i % 500 == 0) {
+                graph.compact();
+            }
+        }
+        if (graph.order() != expected.order() | graph.size() != expected.size()) {
+            fail();
+        }
+        for (String vertex : expected.getAllVertices()) {
+            if (!graph.getAdjacentVerticesOf(vertex)
+                .equals(expected.getAdjacentVerticesOf(vertex))) {
+                fail();
+            }
+        }
+    }
+}
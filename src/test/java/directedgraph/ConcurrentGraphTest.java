@@ -0,0 +1,163 @@
+package directedgraph;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Filename:   ConcurrentGraphTest.java
+ * Project:    p4
+ * Authors:    Sam Peaslee
+ *
+ * Description: JUnit test that tests the functionality of the
+ * ConcurrentGraph class
+ *
+ */
+class ConcurrentGraphTest {
+
+    ConcurrentGraph graph;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        graph = new ConcurrentGraph();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        graph = null;
+    }
+
+    /**
+     * Add and remove vertices and edges on one thread, the graph should
+     * behave like Graph
+     * A -> B -> C
+     *  \        ^
+     *   ------>/
+     */
+    @Test
+    void test_add_and_remove_check_graph() {
+        graph.addEdge("A", "B");
+        graph.addEdge("B", "C");
+        graph.addEdge("A", "C");
+        graph.addEdge("A", "C");
+        graph.addVertex("D");
+        graph.addVertex(null);
+        graph.addEdge(null, "A");
+        if (graph.order() != 4 | graph.size() != 3
+            | !graph.getAdjacentVerticesOf("A").equals(List.of("B", "C"))
+            | !graph.getPredecessorsOf("C").equals(List.of("B", "A"))
+            | !graph.getAdjacentVerticesOf("E").isEmpty()) {
+            fail();
+        }
+        graph.removeEdge("A", "B");
+        graph.removeEdge("A", "D");
+        if (graph.size() != 2 | !graph.getPredecessorsOf("B").isEmpty()) {
+            fail();
+        }
+        graph.addEdge("C", "C");
+        graph.removeVertex("C");
+        if (graph.order() != 3 | graph.size() != 0
+            | graph.getAllVertices().contains("C")
+            | !graph.getAdjacentVerticesOf("A").isEmpty()) {
+            fail();
+        }
+    }
+
+    /**
+     * 8 threads add overlapping edges at once, every edge should be in the
+     * graph once and the counts should be exact
+     */
+    @Test
+    void test_concurrent_addEdge_counts() throws Exception {
+        final int threads = 8;
+        final int n = 20000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                // Every thread adds every edge, in a different order
+                for (int i = 0; i < n; i++) {
+                    int j = (i + offset * 997) % n;
+                    graph.addEdge("v" + (j / 2), "v" + j);
+                    graph.addEdge("v" + j, "w" + (j % 100));
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        // v0 -> v0 is a self loop, so there are 2n edges
+        if (graph.order() != n + 100 | graph.size() != 2 * n
+            | graph.getAllVertices().size() != n + 100
+            | graph.getPredecessorsOf("w7").size() != n / 100) {
+            fail();
+        }
+    }
+
+    /**
+     * Threads add and remove random edges and vertices at once, afterwards
+     * every successor should have the matching predecessor and the counts
+     * should match the edges in the graph
+     */
+    @Test
+    void test_concurrent_changes_stay_consistent() throws Exception {
+        final int threads = 8;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final long seed = t;
+            Thread worker = new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 50000; i++) {
+                    String a = "v" + random.nextInt(200);
+                    String b = "v" + random.nextInt(200);
+                    int op = random.nextInt(10);
+                    if (op < 6) {
+                        graph.addEdge(a, b);
+                    } else if (op < 9) {
+                        graph.removeEdge(a, b);
+                    } else {
+                        graph.removeVertex(a);
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        int edges = 0;
+        for (String v : graph.getAllVertices()) {
+            for (String succ : graph.getAdjacentVerticesOf(v)) {
+                edges++;
+                if (!graph.getAllVertices().contains(succ)
+                    | !graph.getPredecessorsOf(succ).contains(v)) {
+                    fail();
+                }
+            }
+            for (String pred : graph.getPredecessorsOf(v)) {
+                if (!graph.getAdjacentVerticesOf(pred).contains(v)) {
+                    fail();
+                }
+            }
+        }
+        if (edges != graph.size()
+            | graph.getAllVertices().size() != graph.order()) {
+            fail();
+        }
+    }
+}
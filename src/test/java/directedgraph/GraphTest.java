@@ -1,3 +1,5 @@
+package directedgraph;
+
 import static org.junit.jupiter.api.Assertions.*;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -577,4 +579,201 @@ class GraphTest {
     
     
     
+    /*
+     * Build a larger graph, remove and re-add vertices, and check that
+     * every vertex is still found with the correct edges and counts
+     * 0 -> 1, 0 -> 2, 1 -> 2, 1 -> 3 ... i -> i+1, i -> i+2
+     */
+    @Test
+    void test_lookup_after_many_adds_and_removes() {
+        for(int i = 0; i < 1000; i++) {
+            graph.addEdge("" + i, "" + (i + 1));
+            graph.addEdge("" + i, "" + (i + 2));
+        }
+        if(graph.order() != 1002 | graph.size() != 2000) {
+            fail();
+        }
+        // Remove every even vertex, along with all of its edges
+        for(int i = 0; i < 1002; i += 2) {
+            graph.removeVertex("" + i);
+        }
+        vertices = graph.getAllVertices();
+        for(int i = 0; i < 1002; i++) {
+            if(vertices.contains("" + i) != (i % 2 == 1)) {
+                fail();
+            }
+        }
+        // Only the odd to odd edges are left, i -> i+2
+        if(graph.order() != 501 | graph.size() != 500) {
+            fail();
+        }
+        if(!graph.getAdjacentVerticesOf("0").isEmpty()) {
+            fail();
+        }
+        // Add an even vertex back, it should not have its old edges
+        graph.addEdge("3", "4");
+        List<String> adjacent = graph.getAdjacentVerticesOf("3");
+        if(adjacent.size() != 2 | !adjacent.contains("4") 
+            | !adjacent.contains("5")) {
+            fail();
+        }
+        if(!graph.getAdjacentVerticesOf("4").isEmpty()) {
+            fail();
+        }
+        if(graph.order() != 502 | graph.size() != 501) {
+            fail();
+        }
+    }
+    
+    /*
+     * Check that the predecessors of each vertex are kept in sync when 
+     * edges and vertices are added and removed 
+     * Graph will look like:
+     *  A -> B, A -> C, D -> A, D -> B, C -> C
+     */
+    @Test
+    void test_predecessors_kept_in_sync() {
+        graph.addEdge("A", "B");
+        graph.addEdge("A", "C");
+        graph.addEdge("D", "A");
+        graph.addEdge("D", "B");
+        graph.addEdge("C", "C");
+        graph.addEdge("D", "B");
+        List<String> predecessors = graph.getPredecessorsOf("B");
+        if(predecessors.size() != 2 | !predecessors.get(0).equals("A")
+            | !predecessors.get(1).equals("D")) {
+            fail();
+        }
+        if(!graph.getPredecessorsOf("D").isEmpty() 
+            | !graph.getPredecessorsOf("E").isEmpty()
+            | !graph.getPredecessorsOf("C").contains("C")) {
+            fail();
+        }
+        graph.removeEdge("D", "B");
+        if(graph.getPredecessorsOf("B").contains("D")) {
+            fail();
+        }
+        // Removing C removes its edge to itself and the edge from A
+        graph.removeVertex("C");
+        if(graph.size() != 2 | graph.getAdjacentVerticesOf("A").contains("C")) {
+            fail();
+        }
+        // Removing A removes the edges A -> B and D -> A
+        graph.removeVertex("A");
+        if(graph.size() != 0 | !graph.getPredecessorsOf("B").isEmpty()
+            | !graph.getAdjacentVerticesOf("D").isEmpty()) {
+            fail();
+        }
+    }
+    
+    /*
+     * A frozen graph has the same vertices and edges, in the same order,
+     * does not change when the graph does, and can not be changed
+     */
+    @Test
+    void test_freeze_copies_graph() {
+        graph.addEdge("A", "B");
+        graph.addEdge("C", "B");
+        graph.addEdge("A", "C");
+        graph.addEdge("B", "B");
+        graph.addVertex("D");
+        FrozenGraph frozen = graph.freeze();
+        graph.removeVertex("A");
+        graph.addEdge("D", "B");
+        if(frozen.order() != 4 | frozen.size() != 4
+            | !frozen.getAllVertices().contains("A")
+            | !frozen.getAdjacentVerticesOf("A").equals(List.of("B", "C"))
+            | !frozen.getPredecessorsOf("B").equals(List.of("A", "C", "B"))
+            | !frozen.getAdjacentVerticesOf("D").isEmpty()
+            | !frozen.getPredecessorsOf("E").isEmpty()) {
+            fail();
+        }
+        try {
+            frozen.addEdge("D", "A");
+            fail();
+        } catch(UnsupportedOperationException e) {
+        }
+        try {
+            frozen.getAdjacentVerticesOf("A").add("D");
+            fail();
+        } catch(UnsupportedOperationException e) {
+        }
+    }
+    
+    /*
+     * Traversals of a frozen graph reach each vertex once, in breadth or
+     * depth first order, stop at vertices marked visited, and start over
+     * with nothing visited. A chain much longer than the scratch arrays
+     * makes them grow.
+     * Graph will look like:
+     *  A -> B, A -> C, B -> D, C -> D, plus a chain p0 -> ... -> p99
+     */
+    @Test
+    void test_traversal_orders_and_marks() {
+        graph.addEdge("A", "B");
+        graph.addEdge("A", "C");
+        graph.addEdge("B", "D");
+        graph.addEdge("C", "D");
+        for(int i = 0; i < 99; i++) {
+            graph.addEdge("p" + i, "p" + (i + 1));
+        }
+        FrozenGraph frozen = graph.freeze();
+        List<String> entered = new ArrayList<>();
+        List<String> left = new ArrayList<>();
+        try (Traversal walk = Traversal.begin(frozen)) {
+            walk.breadthFirst(frozen.idOf("A"), 
+                Traversal.Direction.SUCCESSORS, v -> {
+                    entered.add(frozen.nameOf(v));
+                    return true;
+                });
+        }
+        if(!entered.equals(List.of("A", "B", "C", "D"))) {
+            fail();
+        }
+        entered.clear();
+        try (Traversal walk = Traversal.begin(frozen)) {
+            // C and what is past it are never entered
+            walk.mark(frozen.idOf("C"));
+            walk.depthFirst(frozen.idOf("D"), 
+                Traversal.Direction.PREDECESSORS,
+                new Traversal.Visitor<RuntimeException>() {
+                    public boolean enter(int v) {
+                        entered.add(frozen.nameOf(v));
+                        return true;
+                    }
+                    public void leave(int v) {
+                        left.add(frozen.nameOf(v));
+                    }
+                });
+            if(!walk.isVisited(frozen.idOf("A")) 
+                | walk.isVisited(frozen.idOf("p0"))) {
+                fail();
+            }
+        }
+        if(!entered.equals(List.of("D", "B", "A")) 
+            | !left.equals(List.of("A", "B", "D"))) {
+            fail();
+        }
+        left.clear();
+        try (Traversal walk = Traversal.begin(frozen)) {
+            walk.depthFirst(frozen.idOf("p99"), 
+                Traversal.Direction.PREDECESSORS,
+                new Traversal.Visitor<RuntimeException>() {
+                    public boolean enter(int v) {
+                        return true;
+                    }
+                    public void leave(int v) {
+                        left.add(frozen.nameOf(v));
+                    }
+                });
+            if(walk.isVisited(frozen.idOf("A"))) {
+                fail();
+            }
+        }
+        if(left.size() != 100 | !left.get(0).equals("p0") 
+            | !left.get(99).equals("p99")) {
+            fail();
+        }
+    }
+    
 }
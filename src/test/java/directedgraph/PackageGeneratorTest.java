@@ -0,0 +1,104 @@
+package directedgraph;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Filename:   PackageGeneratorTest.java
+ * Project:    p4
+ * Authors:    Sam Peaslee
+ *
+ * Description: JUnit test that tests the functionality of the
+ * PackageGenerator class
+ *
+ */
+class PackageGeneratorTest {
+
+    /*
+     * The fixture corpus must be exactly what the generator makes from
+     * the same seed, see the fixtures target of the Makefile
+     */
+    @Test
+    void test_fixtures_match_generator() throws Exception {
+        for(String shape : PackageGenerator.SHAPES) {
+            String[][] depends = PackageGenerator.generate(shape, 2000, 1);
+            if(!json(depends).equals(new String(Files.readAllBytes(
+                Paths.get("fixtures/" + shape + "-2000.json"))))) {
+                fail(shape);
+            }
+        }
+        String[][] depends = PackageGenerator.generate("random", 2000, 1);
+        PackageGenerator.injectCycles(depends, 3, 4, 1);
+        if(!json(depends).equals(new String(Files.readAllBytes(
+            Paths.get("fixtures/random-2000-cycles.json"))))) {
+            fail();
+        }
+    }
+
+    /*
+     * Every shape gives an acyclic graph with every package in it, and the
+     * same seed gives the same graph
+     */
+    @Test
+    void test_generated_graphs_are_acyclic() throws Exception {
+        for(String shape : PackageGenerator.SHAPES) {
+            String[][] depends = PackageGenerator.generate(shape, 20000, 7);
+            if(!Arrays.deepEquals(depends,
+                PackageGenerator.generate(shape, 20000, 7))) {
+                fail(shape);
+            }
+            PackageManager pm = new PackageManager();
+            pm.constructGraph(
+                PackageGenerator.writeTempJson(depends).toString());
+            if(pm.getInstallationOrderForAllPackages().size() != 20000) {
+                fail(shape);
+            }
+        }
+    }
+
+    /*
+     * Packages on an injected cycle throw a CycleException, packages that
+     * do not depend on one do not
+     */
+    @Test
+    void test_injected_cycles_are_found() throws Exception {
+        String[][] depends = PackageGenerator.generate("diamond", 5000, 3);
+        List<List<String>> cycles =
+            PackageGenerator.injectCycles(depends, 5, 6, 3);
+        if(cycles.size() != 5) {
+            fail();
+        }
+        PackageManager pm = new PackageManager();
+        pm.constructGraph(PackageGenerator.writeTempJson(depends).toString());
+        for(List<String> cycle : cycles) {
+            if(cycle.size() < 2 || cycle.size() > 6) {
+                fail();
+            }
+            for(String pkg : cycle) {
+                try {
+                    pm.getInstallationOrder(pkg);
+                    fail(pkg);
+                } catch(CycleException e) {
+                }
+            }
+        }
+        // The first layer has no dependencies
+        if(!pm.getInstallationOrder("p0").equals(Arrays.asList("p0"))) {
+            fail();
+        }
+    }
+
+    /**
+     * Json document of a generated graph
+     */
+    private static String json(String[][] depends) throws Exception {
+        StringWriter out = new StringWriter();
+        PackageGenerator.writeJson(depends, out);
+        return out.toString();
+    }
+}
@@ -0,0 +1,1716 @@
+package directedgraph;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.HashMap;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Filename:   PackageManagerTest.java
+ * Project:    p4
+ * Authors:    Sam Peaslee
+ *
+ * Description: JUnit test that tests the functionality of the PackageManager
+ * class 
+ * 
+ */
+class PackageManagerTest {
+
+    PackageManager pm;
+
+    @BeforeAll
+    static void setUpBeforeClass() throws Exception {}
+
+    @BeforeEach
+    void setUp() throws Exception {
+        pm = new PackageManager();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        pm = null;
+      }  
+////////////////////////////////////////////////////////////////////////////   
+    /*
+     * Check that getAllPackages returns a Set containing all
+     * packages in the graph 
+     */
+    @Test 
+    void test_consructGraph_makes_graph_correctly()
+    throws FileNotFoundException, IOException, ParseException {
+        pm.constructGraph("Cycles.json");      
+        Set<String> allPackages = pm.getAllPackages(); 
+        String[] expected = {"A","B","C","D","F"};
+        int i = 0;
+        for(String pkg : allPackages) {
+            if(!pkg.equals(expected[i])) {
+                fail();
+            }
+            i++;
+        }
+        if(allPackages.size() != expected.length) {
+            fail();
+        }
+    }
+    /*
+     * Check that FileNotFoundException is thrown by constructGraph
+     */
+    @Test
+    void test_constructGraph_filenotfound() throws Exception {
+        try {
+        pm.constructGraph("invalidFile.json");
+        fail();
+        } catch(FileNotFoundException e) {
+            
+        }
+    }
+    /*
+     * Check that ParseError is thrown by constructGraph
+     */
+    @Test
+    void test_constructGraph_parseerror() throws Exception {
+        try {
+            pm.constructGraph("badJSON.json");
+            fail();
+            } catch(ParseException e) {
+               
+            }
+    }
+       
+    
+    /*
+     * Check that PackageReader reads the same packages as json-simple does
+     * for all of the json files
+     */
+    @Test
+    void test_packageReader_matches_json_simple() throws Exception {
+        String[] files = {"Cycles.json", "GS03.json", "depend.json",
+            "graph1.json", "graphCycle.json", "noCycles.json"};
+        for(String file : files) {
+            JSONObject jo = 
+                (JSONObject) new JSONParser().parse(new FileReader(file));
+            JSONArray ja = (JSONArray) jo.get("packages");
+            try(PackageReader reader = 
+                new PackageReader(new FileReader(file))) {
+                for(Object o : ja) {
+                    JSONObject expected = (JSONObject) o;
+                    Package pkg = reader.next();
+                    if(pkg == null || !pkg.getName().equals(expected.get("name"))
+                        || !Arrays.asList(pkg.getDependencies())
+                        .equals(expected.get("dependencies"))) {
+                        fail(file);
+                    }
+                }
+                if(reader.next() != null) {
+                    fail(file);
+                }
+            }
+        }
+    }
+    
+    /*
+     * PackageReader should skip unknown fields, handle escapes and 
+     * fields in any order
+     */
+    @Test
+    void test_packageReader_skips_other_fields() throws Exception {
+        String json = "{\"version\": 2, \"meta\": {\"a\": [1, -2.5e3, "
+            + "{\"b\": null}], \"c\": {}}, \"packages\": [ "
+            + "{\"dependencies\": [\"B\", \"C\\\"\\u0041\"], "
+            + "\"license\": [], \"name\": \"A\", \"ok\": true}, "
+            + "{\"name\": \"B\", \"dependencies\": []} ], "
+            + "\"after\": false }";
+        try(PackageReader reader = new PackageReader(new StringReader(json))) {
+            Package a = reader.next();
+            if(!a.getName().equals("A") | a.getDependencies().length != 2 
+                | !a.getDependencies()[1].equals("C\"A")) {
+                fail();
+            }
+            Package b = reader.next();
+            if(!b.getName().equals("B") | b.getDependencies().length != 0) {
+                fail();
+            }
+            if(reader.next() != null | reader.next() != null) {
+                fail();
+            }
+        }
+    }
+    
+    /*
+     * PackageReader should throw ParseException for invalid json
+     */
+    @Test
+    void test_packageReader_parseerror() throws Exception {
+        String[] invalid = {"", "invalid json", "{\"packages\": [", 
+            "{\"packages\": [{\"name\": \"A\"},]}", 
+            "{\"packages\": []} extra", "{\"a\": [1 2], \"packages\": []}",
+            "{\"packages\": [{\"name\": \"A\", \"dependencies\": [B]}]}"};
+        for(String json : invalid) {
+            try(PackageReader reader = 
+                new PackageReader(new StringReader(json))) {
+                while(reader.next() != null) {
+                }
+                fail(json);
+            } catch(ParseException e) {
+                
+            }
+        }
+    }
+    
+    /*
+     * Error positions past 2 GB of input should not overflow
+     */
+    @Test
+    void test_packageReader_position_past_2GB() throws Exception {
+        long spaces = Integer.MAX_VALUE + 16L;
+        // Whitespace before the document, then a character that is not json
+        Reader large = new Reader() {
+            long left = spaces;
+            
+            @Override
+            public int read(char[] cbuf, int off, int len) {
+                if(left == 0) return -1;
+                if(left == -1) {
+                    left = 0;
+                    cbuf[off] = 'x';
+                    return 1;
+                }
+                int n = (int) Math.min(len, left);
+                Arrays.fill(cbuf, off, off + n, ' ');
+                left = left == n ? -1 : left - n;
+                return n;
+            }
+            
+            @Override
+            public void close() {
+            }
+        };
+        try(PackageReader reader = new PackageReader(large)) {
+            reader.next();
+            fail();
+        } catch(PackageParseException e) {
+            assertEquals(spaces, e.getOffset());
+            assertEquals(Integer.MAX_VALUE, e.getPosition());
+            assertTrue(e.toString().contains("position " + spaces));
+        }
+    }
+    
+    /*
+     * Build the graph from shards of a generated json file, as a list of
+     * files and as a directory. The graph should be the same as the one
+     * built from the whole file, every time.
+     */
+    @Test 
+    void test_constructGraph_from_shards() throws Exception {
+        String[][] depends = PackageGenerator.generate("powerlaw", 20000, 5);
+        Path whole = PackageGenerator.writeTempJson(depends);
+        pm.constructGraph(whole.toString());
+        List<String> expected = pm.getInstallationOrderForAllPackages();
+        List<String> shards = writeShards(depends, 7);
+        for(int run = 0; run < 3; run++) {
+            PackageManager sharded = new PackageManager();
+            sharded.constructGraph(shards);
+            if(!sharded.getInstallationOrderForAllPackages().equals(expected)
+                | !sharded.getAllPackages().equals(pm.getAllPackages())) {
+                fail();
+            }
+        }
+        PackageManager directory = new PackageManager();
+        directory.constructGraph(
+            Paths.get(shards.get(0)).getParent().toString());
+        if(!directory.getInstallationOrderForAllPackages().equals(expected)) {
+            fail();
+        }
+    }
+    
+    /*
+     * A shard that cannot be parsed should be reported by name
+     */
+    @Test 
+    void test_constructGraph_from_shards_parseerror() throws Exception {
+        List<String> shards = writeShards(PackageGenerator.chain(1000), 4);
+        Files.write(Paths.get(shards.get(2)), 
+            "{\"packages\": [{\"name\": }]}".getBytes());
+        try {
+            pm.constructGraph(shards);
+            fail();
+        } catch(ShardParseException e) {
+            if(!e.getShard().equals(shards.get(2)) 
+                | !e.getMessage().contains(shards.get(2))) {
+                fail();
+            }
+        }
+    }
+    
+///////////////////////////////////////////////////////////////////////////////    
+   /** 
+    * Get installation order for packages when there are no cycles in the graph 
+    * 
+    * @throws Exception
+    */
+   @Test
+   void test_get_instalationOrder_no_cycles() throws Exception{
+       pm.constructGraph("noCycles.json"); 
+       List<String> installC = pm.getInstallationOrder("C");
+       ArrayList<String> expectedC = new ArrayList<>() ; 
+       expectedC.add("F");
+       expectedC.add("D");
+       expectedC.add("E");
+       expectedC.add("C");   
+       for(int i = 0; i < installC.size(); i++) {
+          if(!installC.get(i).equals(expectedC.get(i))) {
+              fail();
+          }
+        }
+       List<String> installF = pm.getInstallationOrder("F");
+       
+       for(int i = 0; i < installF.size(); i++) {
+           if(!installF.get(i).equals("F")) {
+               fail();
+           }
+         }
+    }
+   
+   /** 
+    * Get installation order at "A" there is a cycle
+    * At "D" there is no cycle in its installation order  
+    * At "F" there is a no cycle but there is at its dependency A
+    * @throws Exception
+    */
+   @Test
+   void test_get_instalationOrder_cycles()
+       throws FileNotFoundException, IOException, ParseException {
+       pm.constructGraph("Cycles.json"); 
+       try {
+           pm.getInstallationOrder("A");
+           fail();  
+       }catch(CycleException e) {
+           
+       }catch(PackageNotFoundException e) {
+           fail();
+       }
+       try {
+           pm.getInstallationOrder("D");
+      }catch(CycleException e) {
+           fail();
+       }catch(PackageNotFoundException e) {
+           fail();
+       }
+       try {
+           pm.getInstallationOrder("F");
+           fail();
+      }catch(CycleException e) {
+   
+       }catch(PackageNotFoundException e) {
+           fail();
+       }
+    
+       
+   }
+   
+   /** 
+    * The CycleException should list the packages on the cycle
+    * In Cycles.json A -> C -> B -> A (A depends on C, C on B, B on A)
+    * F depends on A, so the cycle A is on is reported for F
+    * @throws Exception
+    */
+   @Test
+   void test_get_instalationOrder_cycle_members()
+       throws FileNotFoundException, IOException, ParseException,
+       PackageNotFoundException {
+       pm.constructGraph("Cycles.json"); 
+       try {
+           pm.getInstallationOrder("F");
+           fail();  
+       }catch(CycleException e) {
+           List<String> cycle = e.getCycle();
+           if(cycle.size() != 3 | !cycle.contains("A") | !cycle.contains("B")
+               | !cycle.contains("C")) {
+               fail();
+           }
+           // Each package on the cycle is a dependency of the next one
+           if(!cycle.get(0).equals("A") | !cycle.get(1).equals("B")
+               | !cycle.get(2).equals("C")) {
+               fail();
+           }
+       }
+   }
+   
+   /** 
+    * Package not in graph error should be thrown  
+    * 
+    * @throws Exception
+    */
+   @Test
+   void test_get_instalationOrder_package_not_in_graph()
+       throws FileNotFoundException, IOException, ParseException{
+       pm.constructGraph("Cycles.json"); 
+       try {
+           pm.getInstallationOrder("Invalid");
+           fail();  
+       } catch(CycleException e) {
+           fail();
+       }catch(PackageNotFoundException e) {
+       
+       }
+
+   }
+ ////////////////////////////////////////////////////////////////////////////
+
+   /*
+    * Get the packages still need to be installed
+    * No cycles in the graph
+    */
+   @Test
+   void test_toInstall_no_cycles() throws Exception{
+       pm.constructGraph("noCycles.json"); 
+       List<String> install = pm.toInstall("A","C");
+       ArrayList<String> expected = new ArrayList<>() ; 
+       expected.add("B");
+       expected.add("A");  
+       for(int i = 0; i < install.size(); i++) {
+          if(!install.get(i).equals(expected.get(i))) {
+              fail();
+          }
+        }
+   
+    }
+
+   /*
+    * Test that toInstall throws CycleExceptions correctly 
+    */
+   @Test
+   void test_toInstall_Cycles()       
+   throws FileNotFoundException, IOException, ParseException{
+       pm.constructGraph("Cycles.json"); 
+       try {
+       pm.toInstall("A","D");
+       fail();
+       }catch(CycleException e) {
+   
+       }catch(PackageNotFoundException e) {
+           fail();
+       }
+       try {
+       pm.toInstall("D","A");
+       fail();
+       }catch(CycleException e) {
+           
+       }catch(PackageNotFoundException e) {
+           fail();
+       }
+       try {
+       pm.toInstall("F","D");
+       fail();
+       }catch(CycleException e) {
+           
+       }catch(PackageNotFoundException e) {
+           fail();
+       }
+      
+    }
+   /*
+    * Get the packages still need to be installed on another graph
+    * Cycle in graph but does not affect all packages 
+    */
+   @Test
+   void test_toInstall_again()   
+   throws FileNotFoundException, IOException, ParseException,
+   PackageNotFoundException{
+       try {
+       pm.constructGraph("graph1.json"); 
+       List<String> install = pm.toInstall("G","A");
+       if(install.size() != 1 | !install.get(0).equals("G")) {
+           fail();
+       }
+       }catch(CycleException e) {
+           fail();
+       }
+       try {
+           pm.toInstall("F", "A");
+           fail();           
+       }catch(CycleException e){
+           
+       }
+   
+    }
+   /*
+    * Test that to install throws PackageNotFound Exceptions correctly 
+    * 
+    */
+   @Test
+   void test_toInstall_package_not_in_graph()
+       throws FileNotFoundException, IOException, ParseException{
+       pm.constructGraph("Cycles.json"); 
+       try {
+           pm.toInstall("A", "invalid");
+           fail(); 
+       } catch(CycleException e) {
+           fail();
+       }catch(PackageNotFoundException e) {
+       
+       }
+       try {
+           pm.toInstall("invalid", "A");
+           fail(); 
+       } catch(CycleException e) {
+           fail();
+       }catch(PackageNotFoundException e) {
+       
+       }
+   }
+   
+   
+///////////////////////////////////////////////////////////////////////////////
+   /*
+    * Check that getInstallationOrderForAllPackages throws a cycle,
+    * when a cycle is present in the graph 
+    */
+   @Test 
+   void test_getInstallationOrderforAllPackages_throws_cycle() 
+   throws FileNotFoundException, IOException, ParseException{
+       pm.constructGraph("Cycles.json");
+       try{
+          pm.getInstallationOrderForAllPackages();
+          fail();
+       }catch(CycleException e) {
+        
+       }
+   }
+   
+   /*
+    * Check that getInstallationOrderForAllPackages returns valid topological o
+    * order, no cycle present in graph
+    */
+   @Test 
+   void test_getInstallationOrderforAllPackages_return_vaild_topo_order() 
+   throws FileNotFoundException, IOException, ParseException, CycleException{
+       
+       pm.constructGraph("noCycles.json");
+       List<String> topo =pm.getInstallationOrderForAllPackages();
+       String[] expected = {"F", "D", "B", "E", "C", "A"};
+       for(int i = 0; i < topo.size(); i ++) {
+           if(!topo.get(i).equals(expected[i])) {
+               fail();
+           }
+       }
+       
+ //////////////////////////////////////////////////////////////////////////////      
+   }
+   /*
+    * Check that getInstallationOrderForAllPackages returns a valid order
+    * for a larger graph, package i depends on packages i/2 and i-1
+    */
+   @Test 
+   void test_getInstallationOrderforAllPackages_large_graph() 
+   throws IOException, ParseException, CycleException{
+       int n = 20000;
+       String[][] depends = new String[n][];
+       depends[0] = new String[0];
+       for(int i = 1; i < n; i++) {
+           depends[i] = new String[] {"p" + (i / 2), "p" + (i - 1)};
+       }
+       pm.constructGraph(PackageGenerator.writeTempJson(depends).toString());
+       List<String> topo = pm.getInstallationOrderForAllPackages();
+       if(topo.size() != n) {
+           fail();
+       }
+       // Every package must come after all of its dependencies
+       HashMap<String, Integer> position = new HashMap<>();
+       for(int i = 0; i < topo.size(); i++) {
+           position.put(topo.get(i), i);
+       }
+       for(int i = 1; i < n; i++) {
+           for(String dependency : depends[i]) {
+               if(position.get(dependency) >= position.get("p" + i)) {
+                   fail();
+               }
+           }
+       }
+   }
+   
+   /*
+    * Check getPackageWithMaxDependencies on a larger graph
+    * Packages 0 to 999 form a chain, each depends on the one before it
+    * Package 1000 depends on 500 and package 1001 depends on 1000 and 999
+    * so 1001 has the most dependencies, all 1001 other packages
+    */
+   @Test 
+   void test_getPackageWithMaxDependencies_large_graph() 
+   throws IOException, ParseException, CycleException{
+       String[][] depends = new String[1002][];
+       depends[0] = new String[0];
+       for(int i = 1; i < 1000; i++) {
+           depends[i] = new String[] {"p" + (i - 1)};
+       }
+       depends[1000] = new String[] {"p500"};
+       depends[1001] = new String[] {"p1000", "p999"};
+       pm.constructGraph(PackageGenerator.writeTempJson(depends).toString());
+       if(!pm.getPackageWithMaxDependencies().equals("p1001")) {
+           fail();
+       }
+   }
+   
+   /*
+    * Build a graph with a snapshot, then load it from the snapshot and 
+    * check it gives the same results. The snapshot should be rebuilt 
+    * when the json file changes or the snapshot is corrupt.
+    */
+   @Test 
+   void test_constructGraph_with_snapshot() throws Exception {
+       String[][] depends = new String[500][];
+       depends[0] = new String[0];
+       for(int i = 1; i < 500; i++) {
+           depends[i] = new String[] {"p" + (i / 3), "p" + (i - 1)};
+       }
+       String json = PackageGenerator.writeTempJson(depends).toString();
+       Path snapshot = Files.createTempFile("packages", ".snapshot");
+       snapshot.toFile().deleteOnExit();
+       Files.delete(snapshot);
+       pm.constructGraph(json, snapshot.toString());
+       if(!Files.exists(snapshot)) {
+           fail();
+       }
+       List<String> expected = pm.getInstallationOrderForAllPackages();
+       // Load from the snapshot, the json file is not parsed
+       PackageManager loaded = new PackageManager();
+       loaded.constructGraph(json, snapshot.toString());
+       if(!loaded.getInstallationOrderForAllPackages().equals(expected)
+           | !loaded.getAllPackages().equals(pm.getAllPackages())
+           | !loaded.getInstallationOrder("p499")
+               .equals(pm.getInstallationOrder("p499"))) {
+           fail();
+       }
+       // Corrupt the snapshot, it should be rebuilt from the json
+       byte[] bytes = Files.readAllBytes(snapshot);
+       bytes[bytes.length / 2] ^= 1;
+       Files.write(snapshot, bytes);
+       PackageManager rebuilt = new PackageManager();
+       rebuilt.constructGraph(json, snapshot.toString());
+       if(!rebuilt.getInstallationOrderForAllPackages().equals(expected)) {
+           fail();
+       }
+       // Change the json file, the stale snapshot should not be used
+       depends[0] = new String[] {"new"};
+       Files.move(PackageGenerator.writeTempJson(depends), Path.of(json),
+           StandardCopyOption.REPLACE_EXISTING);
+       new File(json).setLastModified(
+           System.currentTimeMillis() + 10000);
+       PackageManager changed = new PackageManager();
+       changed.constructGraph(json, snapshot.toString());
+       if(!changed.getAllPackages().contains("new")
+           | !changed.getInstallationOrderForAllPackages().get(0).equals("new")) {
+           fail();
+       }
+   }
+   
+   /*
+    * A package manager that already has packages does not write them into
+    * the snapshot of another json file
+    */
+   @Test
+   void test_snapshot_not_written_over_other_packages() throws Exception {
+       String[][] depends = PackageGenerator.generate("random", 200, 19);
+       String json = PackageGenerator.writeTempJson(depends).toString();
+       Path snapshot = Files.createTempFile("packages", ".snapshot");
+       snapshot.toFile().deleteOnExit();
+       Files.delete(snapshot);
+       pm.constructGraph("noCycles.json");
+       pm.constructGraph(json, snapshot.toString());
+       assertTrue(pm.getAllPackages().contains("A"));
+       assertFalse(Files.exists(snapshot));
+       // A new package manager writes it, with only the packages of json
+       PackageManager fresh = new PackageManager();
+       fresh.constructGraph(json, snapshot.toString());
+       assertTrue(Files.exists(snapshot));
+       PackageManager loaded = new PackageManager();
+       loaded.constructGraph(json, snapshot.toString());
+       assertEquals(fresh.getAllPackages(), loaded.getAllPackages());
+       assertFalse(loaded.getAllPackages().contains("A"));
+   }
+   
+   /*
+    * A graph loaded from a snapshot lists dependencies in the same order 
+    * as the graph built from json, so every installation order is the 
+    * same, also after the loaded graph is changed
+    */
+   @Test
+   void test_snapshot_same_orders_as_json() throws Exception {
+       String[][] depends = PackageGenerator.generate("random", 2000, 13);
+       String json = PackageGenerator.writeTempJson(depends).toString();
+       Path snapshot = Files.createTempFile("packages", ".snapshot");
+       snapshot.toFile().deleteOnExit();
+       pm.constructGraph(json);
+       pm.writeSnapshot(snapshot.toString(), new File(json).lastModified());
+       PackageManager loaded = new PackageManager();
+       loaded.constructGraph(json, snapshot.toString());
+       for(int i = 0; i < depends.length; i += 7) {
+           String pkg = PackageGenerator.name(i);
+           assertEquals(pm.getInstallationOrder(pkg), 
+               loaded.getInstallationOrder(pkg));
+       }
+       assertEquals(pm.getInstallationOrderForAllPackages(), 
+           loaded.getInstallationOrderForAllPackages());
+       // Changing the loaded graph keeps the order of its dependencies
+       pm.addDependency("p1999", "p3");
+       loaded.addDependency("p1999", "p3");
+       for(int i = 0; i < depends.length; i += 7) {
+           String pkg = PackageGenerator.name(i);
+           assertEquals(pm.getInstallationOrder(pkg), 
+               loaded.getInstallationOrder(pkg));
+       }
+       assertEquals(pm.getInstallationOrder("p1999"), 
+           loaded.getInstallationOrder("p1999"));
+   }
+   
+   /*
+    * Check that toInstall is the installation order of the new package
+    * without the installation order of the installed package, in the 
+    * same order, for random pairs of packages in generated graphs
+    */
+   @Test
+   void test_toInstall_matches_set_difference() throws Exception {
+       for(String shape : PackageGenerator.SHAPES) {
+           String[][] depends = PackageGenerator.generate(shape, 2000, 3);
+           PackageManager built = new PackageManager();
+           built.constructGraph(
+               PackageGenerator.writeTempJson(depends).toString());
+           Random random = new Random(3);
+           for(int q = 0; q < 50; q++) {
+               String newPkg = PackageGenerator.name(random.nextInt(2000));
+               String installedPkg = 
+                   PackageGenerator.name(random.nextInt(2000));
+               List<String> expected = new ArrayList<>(
+                   built.getInstallationOrder(newPkg));
+               expected.removeAll(
+                   new HashSet<>(built.getInstallationOrder(installedPkg)));
+               if(!built.toInstall(newPkg, installedPkg).equals(expected)) {
+                   fail(shape + " " + newPkg + " " + installedPkg);
+               }
+           }
+       }
+   }
+   
+   /*
+    * Check toInstall with many requested and installed packages against
+    * the installation orders of the requested packages, and that the 
+    * hosts of toInstallForHosts get the same answers
+    */
+   @Test
+   void test_toInstall_many_installed() throws Exception {
+       pm.constructGraph("noCycles.json");
+       if(!pm.toInstall(Arrays.asList("A"), Arrays.asList("B", "E"))
+           .equals(Arrays.asList("C", "A"))) {
+           fail();
+       }
+       try {
+           pm.toInstall(Arrays.asList("A"), Arrays.asList("B", "Z"));
+           fail();
+       } catch(PackageNotFoundException e) {
+       }
+       String[][] depends = PackageGenerator.generate("powerlaw", 3000, 9);
+       PackageManager built = new PackageManager();
+       built.constructGraph(
+           PackageGenerator.writeTempJson(depends).toString());
+       PackageManager frozen = built.freeze();
+       Random random = new Random(9);
+       List<String> requested = new ArrayList<>();
+       for(int i = 0; i < 5; i++) {
+           requested.add(PackageGenerator.name(random.nextInt(3000)));
+       }
+       List<List<String>> hosts = new ArrayList<>();
+       for(int h = 0; h < 40; h++) {
+           List<String> installed = new ArrayList<>();
+           for(int i = random.nextInt(50); i > 0; i--) {
+               installed.add(PackageGenerator.name(random.nextInt(3000)));
+           }
+           hosts.add(installed);
+       }
+       List<List<String>> needed = frozen.toInstallForHosts(requested, hosts);
+       for(int h = 0; h < hosts.size(); h++) {
+           HashSet<String> done = new HashSet<>();
+           for(String pkg : hosts.get(h)) {
+               done.addAll(built.getInstallationOrder(pkg));
+           }
+           List<String> expected = new ArrayList<>();
+           for(String pkg : requested) {
+               for(String dep : built.getInstallationOrder(pkg)) {
+                   if(done.add(dep)) {
+                       expected.add(dep);
+                   }
+               }
+           }
+           if(!built.toInstall(requested, hosts.get(h)).equals(expected)
+               | !needed.get(h).equals(expected)) {
+               fail("host " + h);
+           }
+       }
+       hosts.get(7).add("missing");
+       try {
+           frozen.toInstallForHosts(requested, hosts);
+           fail();
+       } catch(PackageNotFoundException e) {
+       }
+   }
+   
+   /*
+    * Check dependsOn on the small graphs, packages only depend on
+    * themselves when they are on a cycle
+    */
+   @Test
+   void test_dependsOn_small_graphs() throws Exception {
+       pm.constructGraph("noCycles.json");
+       if(!pm.dependsOn("C", "F") | !pm.dependsOn("A", "F") 
+           | pm.dependsOn("F", "C") | pm.dependsOn("C", "C")) {
+           fail();
+       }
+       try {
+           pm.dependsOn("C", "Z");
+           fail();
+       } catch(PackageNotFoundException e) {
+       }
+       PackageManager cycles = new PackageManager();
+       cycles.constructGraph("Cycles.json");
+       for(String pkg : cycles.getAllPackages()) {
+           boolean onCycle;
+           try {
+               cycles.getInstallationOrder(pkg);
+               onCycle = false;
+           } catch(CycleException e) {
+               onCycle = e.getCycle().contains(pkg);
+           }
+           if(cycles.dependsOn(pkg, pkg) != onCycle) {
+               fail(pkg);
+           }
+       }
+   }
+   
+   /*
+    * Compare dependsOn with a breadth first search for random pairs of
+    * packages in generated graphs, with and without cycles
+    */
+   @Test
+   void test_dependsOn_matches_search() throws Exception {
+       for(String shape : PackageGenerator.SHAPES) {
+           String[][] depends = PackageGenerator.generate(shape, 3000, 11);
+           if(shape.equals("random")) {
+               PackageGenerator.injectCycles(depends, 20, 5, 11);
+           }
+           PackageManager built = new PackageManager();
+           built.constructGraph(
+               PackageGenerator.writeTempJson(depends).toString());
+           Random random = new Random(11);
+           for(int q = 0; q < 300; q++) {
+               int a = random.nextInt(depends.length);
+               // Mostly ask about the closure of a, which is where a walk 
+               // is needed
+               HashSet<String> closure = closure(depends, a);
+               List<String> inClosure = new ArrayList<>(closure);
+               Collections.sort(inClosure);
+               String b = q % 2 == 0 && !inClosure.isEmpty() 
+                   ? inClosure.get(random.nextInt(inClosure.size()))
+                   : PackageGenerator.name(random.nextInt(depends.length));
+               if(built.dependsOn(PackageGenerator.name(a), b) 
+                   != closure.contains(b)) {
+                   fail(shape + " " + a + " " + b);
+               }
+           }
+       }
+   }
+   
+   /**
+    * Every package generated package a depends on, with a breadth first
+    * search over the dependency arrays
+    */
+   static HashSet<String> closure(String[][] depends, int a) {
+       HashSet<String> seen = new HashSet<>();
+       ArrayDeque<String> queue = new ArrayDeque<>();
+       queue.add(PackageGenerator.name(a));
+       while(!queue.isEmpty()) {
+           String pkg = queue.poll();
+           for(String dep : depends[Integer.parseInt(pkg.substring(1))]) {
+               if(seen.add(dep)) {
+                   queue.add(dep);
+               }
+           }
+       }
+       return seen;
+   }
+   
+   /*
+    * Check that dependencies can be added and removed one at a time, and
+    * that a dependency closing a cycle is refused with the cycle
+    */
+   @Test
+   void test_addDependency_small_graphs() throws Exception {
+       pm.constructGraph("noCycles.json");
+       if(!pm.getInstallationOrderForAllPackages().equals(
+           Arrays.asList("F", "D", "B", "E", "C", "A"))) {
+           fail();
+       }
+       pm.addDependency("B", "E");
+       if(!pm.getInstallationOrderForAllPackages().equals(
+           Arrays.asList("F", "D", "E", "B", "C", "A"))) {
+           fail();
+       }
+       try {
+           pm.addDependency("F", "A");
+           fail();
+       } catch(CycleException e) {
+           List<String> cycle = e.getCycle();
+           if(!cycle.get(0).equals("F") 
+               | !cycle.get(cycle.size() - 1).equals("A")) {
+               fail();
+           }
+       }
+       // The refused dependency was not added
+       if(pm.dependsOn("F", "A") | pm.getAllPackages().size() != 6) {
+           fail();
+       }
+       pm.addPackage("G", Arrays.asList("A", "H"));
+       pm.removeDependency("A", "C");
+       pm.removePackage("D");
+       if(!pm.getInstallationOrderForAllPackages().equals(
+           Arrays.asList("F", "E", "B", "C", "A", "H", "G"))) {
+           fail();
+       }
+       try {
+           pm.removePackage("D");
+           fail();
+       } catch(PackageNotFoundException e) {
+       }
+       // Graphs with a cycle are searched instead
+       PackageManager cycles = new PackageManager();
+       cycles.constructGraph("Cycles.json");
+       try {
+           cycles.addDependency("D", "F");
+           fail();
+       } catch(CycleException e) {
+       }
+       cycles.addDependency("F", "D");
+       cycles.removePackage("B");
+       if(!cycles.getInstallationOrderForAllPackages().equals(
+           Arrays.asList("D", "C", "A", "F"))) {
+           fail();
+       }
+   }
+   
+   /*
+    * Make random changes to a generated graph and check that the kept
+    * up to date installation order is always valid, and that a cycle is
+    * reported exactly when the new dependency closes one
+    */
+   @Test
+   void test_incremental_order_random_changes() throws Exception {
+       String[][] depends = PackageGenerator.generate("random", 2000, 5);
+       pm.constructGraph(PackageGenerator.writeTempJson(depends).toString());
+       pm.getInstallationOrderForAllPackages();
+       // Dependencies of each package, changed along with pm
+       HashMap<String, Set<String>> model = new HashMap<>();
+       for(int i = 0; i < depends.length; i++) {
+           model.put(PackageGenerator.name(i), 
+               new HashSet<>(Arrays.asList(depends[i])));
+       }
+       Random random = new Random(5);
+       int refused = 0;
+       for(int change = 0; change < 600; change++) {
+           List<String> all = new ArrayList<>(pm.getAllPackages());
+           String a = all.get(random.nextInt(all.size()));
+           String b = all.get(random.nextInt(all.size()));
+           int kind = random.nextInt(10);
+           if(kind < 6) {
+               boolean closes = a.equals(b) || pm.dependsOn(b, a);
+               try {
+                   pm.addDependency(a, b);
+                   model.get(a).add(b);
+                   if(closes) fail(a + " " + b);
+               } catch(CycleException e) {
+                   refused++;
+                   if(!closes) fail(a + " " + b);
+               }
+           } else if(kind < 8) {
+               pm.removeDependency(a, b);
+               model.get(a).remove(b);
+           } else if(kind < 9) {
+               pm.removePackage(a);
+               model.remove(a);
+               for(Set<String> deps : model.values()) {
+                   deps.remove(a);
+               }
+           } else {
+               pm.addPackage("new" + change, Arrays.asList(a, b));
+               model.put("new" + change, new HashSet<>(Arrays.asList(a, b)));
+           }
+           if(!validOrder(model, pm.getInstallationOrderForAllPackages())) {
+               fail("change " + change);
+           }
+       }
+       if(refused == 0) {
+           fail();
+       }
+   }
+   
+   /**
+    * Checks that an order holds every package once, each after all of 
+    * the packages it depends on
+    * @param depends dependencies of each package
+    * @param order installation order to check
+    */
+   static boolean validOrder(HashMap<String, Set<String>> depends, 
+       List<String> order) {
+       if(order.size() != depends.size() 
+           | !new HashSet<>(order).equals(depends.keySet())) {
+           return false;
+       }
+       HashSet<String> installed = new HashSet<>();
+       for(String pkg : order) {
+           if(!installed.containsAll(depends.get(pkg))) {
+               return false;
+           }
+           installed.add(pkg);
+       }
+       return true;
+   }
+   
+   /*
+    * Check that installation orders and cycles are cached, and that only
+    * the orders holding a package whose dependencies changed are dropped
+    */
+   @Test
+   void test_installOrderCache_hits_and_invalidation() throws Exception {
+       pm.constructGraph("noCycles.json");
+       InstallOrderCache cache = pm.getInstallOrderCache();
+       List<String> c = pm.getInstallationOrder("C");
+       if(!pm.getInstallationOrder("C").equals(c) | cache.misses() != 1
+           | cache.hits() != 1) {
+           fail();
+       }
+       pm.getInstallationOrder("B");
+       // Nothing cached depends on A
+       pm.addDependency("A", "E");
+       pm.getInstallationOrder("B");
+       pm.getInstallationOrder("C");
+       if(cache.hits() != 3 | cache.invalidations() != 0) {
+           fail();
+       }
+       // The order of C holds E, the order of B does not
+       pm.addDependency("E", "B");
+       if(!pm.getInstallationOrder("C").equals(
+           Arrays.asList("F", "D", "B", "E", "C")) | cache.hits() != 3
+           | cache.invalidations() != 1) {
+           fail();
+       }
+       pm.getInstallationOrder("B");
+       if(cache.hits() != 4) {
+           fail();
+       }
+       // Cycles are cached too
+       PackageManager cycles = new PackageManager();
+       cycles.constructGraph("Cycles.json");
+       for(int i = 0; i < 2; i++) {
+           try {
+               cycles.getInstallationOrder("A");
+               fail();
+           } catch(CycleException e) {
+           }
+       }
+       if(cycles.getInstallOrderCache().hits() != 1) {
+           fail();
+       }
+   }
+   
+   /*
+    * Check that the cache evicts the least recently used orders to stay
+    * within its capacity, counted in packages
+    */
+   @Test
+   void test_installOrderCache_evicts_by_size() throws Exception {
+       PackageManager small = new PackageManager(5);
+       small.constructGraph("noCycles.json");
+       InstallOrderCache cache = small.getInstallOrderCache();
+       small.getInstallationOrder("C");
+       small.getInstallationOrder("B");
+       if(cache.evictions() != 1 | cache.weight() != 3 | cache.size() != 1) {
+           fail();
+       }
+       // Too big to cache at all
+       small.getInstallationOrder("A");
+       small.getInstallationOrder("A");
+       if(cache.hits() != 0 | cache.misses() != 4 | cache.size() != 1) {
+           fail();
+       }
+   }
+   
+   /*
+    * Many threads share the cache of a frozen package manager, small 
+    * enough that orders are evicted all the time, and get the same 
+    * orders as without a cache
+    */
+   @Test
+   void test_installOrderCache_concurrent_readers() throws Exception {
+       String[][] depends = PackageGenerator.generate("powerlaw", 3000, 4);
+       String json = PackageGenerator.writeTempJson(depends).toString();
+       PackageManager uncached = new PackageManager(0);
+       uncached.constructGraph(json);
+       PackageManager built = new PackageManager(2000);
+       built.constructGraph(json);
+       PackageManager frozen = built.freeze();
+       AtomicBoolean failed = new AtomicBoolean();
+       List<Thread> readers = new ArrayList<>();
+       for(int t = 0; t < 4; t++) {
+           Random random = new Random(t);
+           Thread reader = new Thread(() -> {
+               try {
+                   for(int q = 0; q < 500; q++) {
+                       // Mostly popular packages, some others
+                       int i = random.nextInt(q % 4 == 0 ? 3000 : 50);
+                       String pkg = PackageGenerator.name(i);
+                       if(!frozen.getInstallationOrder(pkg).equals(
+                           uncached.getInstallationOrder(pkg))) {
+                           failed.set(true);
+                       }
+                   }
+               } catch(Exception e) {
+                   failed.set(true);
+               }
+           });
+           readers.add(reader);
+           reader.start();
+       }
+       for(Thread reader : readers) {
+           reader.join();
+       }
+       InstallOrderCache cache = frozen.getInstallOrderCache();
+       if(failed.get() | cache.hits() == 0 | cache.evictions() == 0
+           | cache.weight() > 2000 | uncached.getInstallOrderCache().size() != 0) {
+           fail();
+       }
+   }
+   
+   /*
+    * Walk a chain of a million packages on a thread with a small stack,
+    * the walks keep their own stacks so the depth does not matter
+    */
+   @Test
+   void test_deep_chain_small_stack() throws Exception {
+       int n = 1000000;
+       pm.constructGraph(
+           PackageGenerator.writeTempJson(PackageGenerator.chain(n)).toString());
+       String last = PackageGenerator.name(n - 1);
+       String middle = PackageGenerator.name(n / 2);
+       onSmallStack(() -> {
+           List<String> order = pm.getInstallationOrder(last);
+           assertEquals(n, order.size());
+           assertEquals("p0", order.get(0));
+           assertEquals(last, order.get(n - 1));
+           List<String> needed = pm.toInstall(last, middle);
+           assertEquals(n - n / 2 - 1, needed.size());
+           assertEquals(PackageGenerator.name(n / 2 + 1), needed.get(0));
+           assertEquals(n, pm.getInstallationOrderForAllPackages().size());
+           assertTrue(pm.dependsOn(last, "p0"));
+           return null;
+       });
+   }
+   
+   /*
+    * PackageManager2 walks a chain deeper than a small stack could hold 
+    * with recursion
+    */
+   @Test
+   void test_packageManager2_deep_chain_small_stack() throws Exception {
+       int n = 10000;
+       PackageManager2 pm2 = new PackageManager2();
+       pm2.constructGraph(
+           PackageGenerator.writeTempJson(PackageGenerator.chain(n)).toString());
+       onSmallStack(() -> {
+           List<String> order = 
+               pm2.getInstallationOrder(PackageGenerator.name(n - 1));
+           assertEquals(n, order.size());
+           assertEquals("p0", order.get(0));
+           return null;
+       });
+   }
+   
+   /**
+    * Runs a task on a new thread with a 256KB stack and waits for it, 
+    * rethrowing anything the task threw
+    */
+   static void onSmallStack(Callable<Void> task) throws Exception {
+       AtomicReference<Throwable> thrown = new AtomicReference<>();
+       Thread thread = new Thread(null, () -> {
+           try {
+               task.call();
+           } catch(Throwable t) {
+               thrown.set(t);
+           }
+       }, "small-stack", 1 << 18);
+       thread.start();
+       thread.join();
+       if(thrown.get() instanceof Exception) {
+           throw (Exception) thrown.get();
+       }
+       if(thrown.get() != null) {
+           throw new AssertionError(thrown.get());
+       }
+   }
+   
+   /*
+    * A frozen package manager gives the same answers, can not be changed,
+    * and can be queried by many threads while the next version is built
+    * and swapped in through one reference
+    */
+   @Test
+   void test_freeze_concurrent_readers() throws Exception {
+       pm.constructGraph("noCycles.json");
+       PackageManager frozen = pm.freeze();
+       if(!frozen.getInstallationOrder("C").equals(pm.getInstallationOrder("C"))
+           | !frozen.getInstallationOrderForAllPackages().equals(
+               pm.getInstallationOrderForAllPackages())
+           | !frozen.getAllPackages().equals(pm.getAllPackages())
+           | !frozen.getPackageWithMaxDependencies().equals(
+               pm.getPackageWithMaxDependencies())) {
+           fail();
+       }
+       try {
+           frozen.constructGraph("Cycles.json");
+           fail();
+       } catch(IllegalStateException e) {
+       }
+       // Readers query whatever version is current, the writer builds 
+       // bigger and bigger chains and swaps each one in
+       AtomicReference<PackageManager> current = 
+           new AtomicReference<>(chainManager(100));
+       AtomicBoolean done = new AtomicBoolean();
+       AtomicBoolean failed = new AtomicBoolean();
+       List<Thread> readers = new ArrayList<>();
+       for(int t = 0; t < 4; t++) {
+           Thread reader = new Thread(() -> {
+               try {
+                   while(!done.get()) {
+                       PackageManager version = current.get();
+                       int n = version.getAllPackages().size();
+                       List<String> order = version.getInstallationOrder(
+                           PackageGenerator.name(n - 1));
+                       if(order.size() != n | !order.get(0).equals("p0")) {
+                           failed.set(true);
+                       }
+                   }
+               } catch(Exception e) {
+                   failed.set(true);
+               }
+           });
+           readers.add(reader);
+           reader.start();
+       }
+       for(int n = 200; n <= 2000; n += 100) {
+           current.set(chainManager(n));
+       }
+       done.set(true);
+       for(Thread reader : readers) {
+           reader.join();
+       }
+       if(failed.get()) {
+           fail();
+       }
+   }
+   
+   /*
+    * Threads reading one frozen package manager at the same time all get 
+    * the same install schedule and closure store, made once
+    */
+   @Test
+   void test_freeze_concurrent_schedule() throws Exception {
+       String[][] depends = PackageGenerator.generate("random", 5000, 17);
+       pm.constructGraph(PackageGenerator.writeTempJson(depends).toString());
+       String max = pm.getPackageWithMaxDependencies();
+       // A new frozen copy each round, its schedule not made yet
+       for(int round = 0; round < 20; round++) {
+           PackageManager shared = pm.freeze();
+           CyclicBarrier start = new CyclicBarrier(4);
+           List<Callable<Object[]>> readers = new ArrayList<>();
+           for(int t = 0; t < 4; t++) {
+               readers.add(() -> {
+                   start.await();
+                   return new Object[] {shared.getInstallSchedule(), 
+                       shared.getPackageWithMaxDependencies(),
+                       shared.getClosureStore()};
+               });
+           }
+           ExecutorService pool = Executors.newFixedThreadPool(4);
+           try {
+               Object[] first = null;
+               for(Future<Object[]> result : pool.invokeAll(readers)) {
+                   Object[] got = result.get();
+                   if(first == null) first = got;
+                   assertSame(first[0], got[0]);
+                   assertEquals(max, got[1]);
+                   assertSame(first[2], got[2]);
+               }
+               assertEquals(pm.getInstallationLayers(), 
+                   shared.getInstallationLayers());
+           } finally {
+               pool.shutdown();
+           }
+       }
+   }
+   
+   /**
+    * Frozen package manager of a chain of n packages
+    */
+   static PackageManager chainManager(int n) throws Exception {
+       PackageManager built = new PackageManager();
+       built.constructGraph(
+           PackageGenerator.writeTempJson(PackageGenerator.chain(n)).toString());
+       return built.freeze();
+   }
+   
+   /**
+    * Writes a graph as shards in a new temporary directory
+    * @param depends dependencies of each package
+    * @param count number of shards
+    * @return paths of the shards, in order
+    */
+   static List<String> writeShards(String[][] depends, int count) 
+       throws IOException {
+       Path directory = Files.createTempDirectory("shards");
+       directory.toFile().deleteOnExit();
+       List<String> shards = 
+           PackageGenerator.writeShards(depends, count, directory);
+       for(String shard : shards) {
+           new File(shard).deleteOnExit();
+       }
+       return shards;
+   }
+   
+   /*
+    * Check that getPackageWithMaxDependencies throws a cycle,
+    * when a cycle is present in the graph 
+    */
+   @Test 
+   void test_getPackageWithMaxDependenciess_throws_cycle() 
+   throws FileNotFoundException, IOException, ParseException{
+       pm.constructGraph("Cycles.json");
+       try{
+           pm.getPackageWithMaxDependencies();
+           fail();
+       }catch(CycleException e) {
+        
+       } try{
+           pm.constructGraph("graph1.json");
+           pm.getPackageWithMaxDependencies();
+           fail();
+       }catch(CycleException e) {
+
+       }
+   }
+   
+   /*
+    * Check that getPackageWithMaxDependencies returns package with max 
+    *  dependencies, no cycle present in graph
+    */
+   @Test 
+   void test_getPackageWithMaxDependencies_return_vaild_topo_order() 
+   throws FileNotFoundException, IOException, ParseException, CycleException{
+       
+       pm.constructGraph("noCycles.json");
+       String maxDepend = pm.getPackageWithMaxDependencies();
+       if(!maxDepend.equals("A")) {
+           fail();
+       }   
+   }
+   
+   /*
+    * Layers of noCycles.json, each package is in the layer after its 
+    * deepest dependency, and a graph with a cycle has no layers
+    */
+   @Test
+   void test_getInstallationLayers() throws Exception {
+       pm.constructGraph("noCycles.json");
+       List<List<String>> layers = pm.getInstallationLayers();
+       if(!layers.equals(List.of(List.of("F"), List.of("D"), 
+           List.of("B", "E"), List.of("C"), List.of("A")))) {
+           fail();
+       }
+       InstallSchedule schedule = pm.getInstallSchedule();
+       if(schedule.heightOf("F") != 5 | schedule.heightOf("B") != 2
+           | schedule.heightOf("A") != 1 | schedule.heightOf("X") != 0) {
+           fail();
+       }
+       // A new dependency makes a new schedule
+       pm.addDependency("F", "G");
+       if(pm.getInstallationLayers().size() != 6) {
+           fail();
+       }
+       pm.constructGraph("Cycles.json");
+       try {
+           pm.getInstallationLayers();
+           fail();
+       } catch(CycleException e) {
+       }
+   }
+   
+   /*
+    * Install a generated graph on a few threads, every package is 
+    * installed once and after all of its dependencies, and a failed 
+    * package stops every package that depends on it
+    */
+   @Test
+   void test_installSchedule_parallel_install() throws Exception {
+       String[][] depends = PackageGenerator.generate("random", 2000, 7);
+       pm.constructGraph(PackageGenerator.writeTempJson(depends).toString());
+       InstallSchedule schedule = pm.getInstallSchedule();
+       ExecutorService pool = Executors.newFixedThreadPool(4);
+       try {
+           Set<String> installed = ConcurrentHashMap.newKeySet();
+           AtomicBoolean early = new AtomicBoolean();
+           schedule.install(pkg -> {
+               for(String dependency : depends[number(pkg)]) {
+                   if(!installed.contains(dependency)) early.set(true);
+               }
+               if(!installed.add(pkg)) early.set(true);
+           }, pool, 4);
+           if(early.get() | installed.size() != depends.length) {
+               fail();
+           }
+           // p10 fails, nothing that depends on it is installed
+           String failing = PackageGenerator.name(10);
+           installed.clear();
+           try {
+               schedule.install(pkg -> {
+                   if(pkg.equals(failing)) throw new IOException(pkg);
+                   installed.add(pkg);
+               }, pool, 4);
+               fail();
+           } catch(InstallException e) {
+               if(!e.getPackage().equals(failing) 
+                   | !(e.getCause() instanceof IOException)) {
+                   fail();
+               }
+           }
+           for(String pkg : installed) {
+               if(pm.dependsOn(pkg, failing)) {
+                   fail();
+               }
+           }
+       } finally {
+           pool.shutdown();
+       }
+   }
+   
+   /*
+    * An Error thrown by an install is thrown by install() only after the
+    * installs already running have finished
+    */
+   @Test
+   void test_installSchedule_error_waits_for_running() throws Exception {
+       pm.addPackage("slow", List.of());
+       pm.addPackage("broken", List.of());
+       AtomicBoolean finished = new AtomicBoolean();
+       ExecutorService pool = Executors.newFixedThreadPool(2);
+       try {
+           pm.getInstallSchedule().install(pkg -> {
+               if(pkg.equals("broken")) throw new AssertionError(pkg);
+               Thread.sleep(200);
+               finished.set(true);
+           }, pool, 2);
+           fail();
+       } catch(AssertionError e) {
+           assertEquals("broken", e.getMessage());
+           assertTrue(finished.get());
+       } finally {
+           pool.shutdown();
+       }
+   }
+   
+   /*
+    * Critical path of noCycles.json with costs kept in the package file,
+    * B takes long so the critical path goes through it
+    */
+   @Test
+   void test_criticalPathReport_with_costs() throws Exception {
+       Path file = Files.createTempFile("packages", ".json");
+       file.toFile().deleteOnExit();
+       Files.write(file, List.of("{\"packages\": [",
+           "{\"name\": \"A\", \"dependencies\": [\"B\", \"C\"]},",
+           "{\"name\": \"B\", \"dependencies\": [\"D\"], \"cost\": 10},",
+           "{\"name\": \"C\", \"dependencies\": [\"D\", \"E\"]},",
+           "{\"name\": \"E\", \"dependencies\": [\"D\"]},",
+           "{\"name\": \"D\", \"dependencies\": [\"F\"], \"cost\": 2}",
+           "]}"));
+       pm.constructGraph(file.toString());
+       CriticalPathReport report = pm.getCriticalPathReport(
+           CriticalPathReport.readCosts(file.toString()));
+       if(report.length() != 14 | report.depthOf("B") != 13 
+           | report.heightOf("D") != 13 | report.slackOf("B") != 0
+           | report.slackOf("C") != 8 | report.slackOf("E") != 8
+           | !report.criticalPath().equals(List.of("F", "D", "B", "A"))) {
+           fail();
+       }
+       try {
+           report.depthOf("X");
+           fail();
+       } catch(PackageNotFoundException e) {
+       }
+       // With the same cost for every package the critical path is one of
+       // the longest chains of the layers
+       report = pm.getCriticalPathReport();
+       if(report.length() != 5 | report.slackOf("B") != 1 
+           | report.criticalPath().size() != 5) {
+           fail();
+       }
+   }
+   
+   /*
+    * With the same cost for every package, the depth of each package is 
+    * its layer and its height the one of the install schedule, and the 
+    * top chains end at the deepest packages
+    */
+   @Test
+   void test_criticalPathReport_matches_layers() throws Exception {
+       String[][] depends = PackageGenerator.generate("powerlaw", 3000, 5);
+       pm.constructGraph(PackageGenerator.writeTempJson(depends).toString());
+       InstallSchedule schedule = pm.getInstallSchedule();
+       CriticalPathReport report = pm.getCriticalPathReport();
+       if(report.length() != schedule.layerCount()) {
+           fail();
+       }
+       for(int layer = 0; layer < schedule.layerCount(); layer++) {
+           for(String pkg : schedule.layer(layer)) {
+               if(report.depthOf(pkg) != layer + 1
+                   | report.heightOf(pkg) != schedule.heightOf(pkg)) {
+                   fail();
+               }
+           }
+       }
+       List<List<String>> chains = report.topChains(10);
+       double previous = Double.MAX_VALUE;
+       for(List<String> chain : chains) {
+           String end = chain.get(chain.size() - 1);
+           if(chain.size() != report.depthOf(end) 
+               | report.depthOf(end) > previous
+               | !pm.getAllPackages().containsAll(chain)) {
+               fail();
+           }
+           for(int i = 1; i < chain.size(); i++) {
+               if(!Arrays.asList(depends[number(chain.get(i))])
+                   .contains(chain.get(i - 1))) {
+                   fail();
+               }
+           }
+           previous = report.depthOf(end);
+       }
+       if(chains.isEmpty() | chains.get(0).size() != schedule.layerCount()) {
+           fail();
+       }
+   }
+   
+   /*
+    * Number of a generated package name
+    */
+   private static int number(String pkg) {
+       return Integer.parseInt(pkg.substring(1));
+   }
+   
+   /*
+    * Counting layer by layer on a pool gives the same count for every
+    * package as counting on one thread, for every generated shape
+    */
+   @Test
+   void test_dependencyCounts_parallel_matches_serial() throws Exception {
+       ForkJoinPool pool = new ForkJoinPool(4);
+       try {
+           for(String shape : PackageGenerator.SHAPES) {
+               Graph graph = new Graph();
+               String[][] depends = PackageGenerator.generate(shape, 3000, 11);
+               for(int i = 0; i < depends.length; i++) {
+                   graph.addVertex(PackageGenerator.name(i));
+                   for(String depend : depends[i]) {
+                       graph.addEdge(depend, PackageGenerator.name(i));
+                   }
+               }
+               FrozenGraph frozen = graph.freeze();
+               DependencyCounts serial = 
+                   new DependencyCounts(frozen.compact());
+               DependencyCounts parallel = new DependencyCounts(frozen, pool);
+               for(int id = 0; id < frozen.order(); id++) {
+                   if(serial.countOf(id) != parallel.countOf(id)) {
+                       fail(shape);
+                   }
+               }
+               if(serial.max() != parallel.max()) {
+                   fail(shape);
+               }
+           }
+       } finally {
+           pool.shutdown();
+       }
+   }
+   
+   /*
+    * Packages with as many dependencies as each other are told apart by
+    * name, not by the order they were read in
+    */
+   @Test
+   void test_getPackageWithMaxDependencies_tie_by_name() throws Exception {
+       pm.addPackage("Z", List.of("X", "Y"));
+       pm.addPackage("B", List.of("C", "D"));
+       if(!pm.getPackageWithMaxDependencies().equals("B")) {
+           fail();
+       }
+   }
+   
+   /*
+    * The estimated counts are close to the exact counts, and the top 
+    * packages are the packages with the most dependencies
+    */
+   @Test
+   void test_estimatePackagesWithMaxDependencies() throws Exception {
+       String[][] depends = PackageGenerator.generate("random", 20000, 3);
+       pm.constructGraph(PackageGenerator.writeTempJson(depends).toString());
+       String max = pm.getPackageWithMaxDependencies();
+       List<DependencySketches.Estimate> top = 
+           pm.estimatePackagesWithMaxDependencies(20, 12);
+       if(top.size() != 20 | top.get(0).getCount() < top.get(19).getCount()) {
+           fail();
+       }
+       boolean found = false;
+       for(DependencySketches.Estimate estimate : top) {
+           found |= estimate.getPackage().equals(max);
+       }
+       if(!found) {
+           fail();
+       }
+       // Every estimate within 4 standard errors, or 2 for small counts
+       Graph graph = new Graph();
+       for(int i = 0; i < depends.length; i++) {
+           graph.addVertex(PackageGenerator.name(i));
+           for(String depend : depends[i]) {
+               graph.addEdge(depend, PackageGenerator.name(i));
+           }
+       }
+       FrozenGraph frozen = graph.freeze();
+       DependencyCounts exact = new DependencyCounts(frozen.compact());
+       DependencySketches sketches = 
+           new DependencySketches(frozen.compact(), 12);
+       for(int id = 0; id < frozen.order(); id++) {
+           double count = exact.countOf(id);
+           double off = Math.abs(sketches.estimateOf(id) - count);
+           if(off > Math.max(2, 4 * sketches.error() * count)) {
+               fail(frozen.nameOf(id) + " " + count + " " 
+                   + sketches.estimateOf(id));
+           }
+       }
+       try {
+           pm.estimatePackagesWithMaxDependencies(1, 20);
+           fail();
+       } catch(IllegalArgumentException e) {
+       }
+       pm.constructGraph("Cycles.json");
+       try {
+           pm.estimatePackagesWithMaxDependencies(1, 8);
+           fail();
+       } catch(CycleException e) {
+       }
+   }
+   
+   /*
+    * The closure store agrees with getInstallationOrder, toInstall and 
+    * dependsOn, lists packages in a valid installation order, and reads 
+    * back the same from disk. A corrupt file reads as null.
+    */
+   @Test
+   void test_closureStore_matches_queries() throws Exception {
+       String[][] depends = PackageGenerator.generate("diamond", 3000, 9);
+       pm.constructGraph(PackageGenerator.writeTempJson(depends).toString());
+       ClosureStore store = pm.getClosureStore();
+       Path file = Files.createTempFile("packages", ".closures");
+       file.toFile().deleteOnExit();
+       store.write(file.toString());
+       ClosureStore read = ClosureStore.read(file.toString());
+       Random random = new Random(9);
+       for(int t = 0; t < 200; t++) {
+           String pkg = PackageGenerator.name(random.nextInt(depends.length));
+           String other = PackageGenerator.name(random.nextInt(depends.length));
+           List<String> order = pm.getInstallationOrder(pkg);
+           List<String> dependencies = store.dependenciesOf(pkg);
+           if(dependencies.size() != order.size() - 1 
+               | !new HashSet<>(dependencies).equals(
+                   new HashSet<>(order.subList(0, order.size() - 1)))
+               | !read.dependenciesOf(pkg).equals(dependencies)
+               | store.closureSize(pkg) != dependencies.size()
+               | store.dependsOn(pkg, other) != pm.dependsOn(pkg, other)) {
+               fail(pkg);
+           }
+           List<String> needed = store.toInstall(List.of(pkg), List.of(other));
+           if(!new HashSet<>(needed).equals(
+               new HashSet<>(pm.toInstall(pkg, other)))) {
+               fail(pkg + " " + other);
+           }
+           // Every dependency of a package comes before it
+           HashSet<String> all = new HashSet<>(needed);
+           HashSet<String> seen = new HashSet<>();
+           for(String p : needed) {
+               for(String dependency : depends[number(p)]) {
+                   if(all.contains(dependency) & !seen.contains(dependency)) {
+                       fail(p);
+                   }
+               }
+               seen.add(p);
+           }
+           for(String dependent : store.dependentsOf(pkg)) {
+               if(!pm.dependsOn(dependent, pkg)) {
+                   fail(dependent);
+               }
+           }
+       }
+       try {
+           store.closureSize("X");
+           fail();
+       } catch(PackageNotFoundException e) {
+       }
+       // Flip a byte in the middle, the checksum no longer matches
+       byte[] bytes = Files.readAllBytes(file);
+       bytes[bytes.length / 2] ^= 1;
+       Files.write(file, bytes);
+       if(ClosureStore.read(file.toString()) != null) {
+           fail();
+       }
+       Files.write(file, Arrays.copyOf(bytes, 100));
+       if(ClosureStore.read(file.toString()) != null) {
+           fail();
+       }
+   }
+}